@@ -0,0 +1,98 @@
+package com.muantech.rollbar.java;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The cost of RollbarAppender.append on the logging thread, for events under the notify level and for notified
+ * events with and without a throwable.
+ *
+ * The notified events go to an endpoint in the same JVM. They come much faster than it's sent, so the lanes are
+ * full most of the time and the numbers are those of an appender under overload: build the context, offer it and
+ * drop it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppenderBenchmark {
+
+    @Param({ "INFO", "ERROR" })
+    private String level;
+
+    @Param({ "false", "true" })
+    private boolean throwable;
+
+    private HttpServer endpoint;
+    private RollbarAppender appender;
+    private LogEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        endpoint = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        endpoint.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getRequestBody().close();
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        endpoint.start();
+
+        NotifierConfig config = new NotifierConfig();
+        config.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+        config.setJmx(false);
+
+        appender = new RollbarAppender("rollbar", null, PatternLayout.createDefaultLayout(), false, "token", "benchmark",
+                new ArrayList<String>(), config);
+        appender.setUrl("http://localhost:" + endpoint.getAddress().getPort() + "/");
+        appender.setOnlyThrowable(false);
+        appender.start();
+
+        event = Log4jLogEvent.newBuilder()
+                .setLoggerName("com.example.shop.CheckoutService")
+                .setLevel(org.apache.logging.log4j.Level.toLevel(level))
+                .setMessage(new ParameterizedMessage("Payment of order {} failed for customer {}", "A-1042", "c-77"))
+                .setThrown(throwable ? Throwables.chain(1, 40) : null)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        appender.stop();
+        endpoint.stop(0);
+    }
+
+    @Benchmark
+    public void append() {
+        appender.append(event);
+    }
+
+}
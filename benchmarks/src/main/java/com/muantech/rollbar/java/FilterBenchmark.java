@@ -0,0 +1,74 @@
+package com.muantech.rollbar.java;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * What RollbarFilter adds to every request that doesn't fail, with the lazy default and with capture=eager, for a
+ * request with the headers of a browser and the parameters of a form.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({ "lazy", "eager" })
+    private String capture;
+
+    private RollbarFilter filter;
+    private HttpServletRequest request;
+    private ServletResponse response;
+    private Application chain;
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws ServletException {
+        filter = new RollbarFilter();
+        filter.init(ServletMocks.filterConfig(capture));
+        request = ServletMocks.request(18, 12);
+        response = ServletMocks.response();
+        chain = new Application(blackhole);
+    }
+
+    @Benchmark
+    public void doFilter() throws IOException, ServletException {
+        filter.doFilter(request, response, chain);
+    }
+
+    // the application, which only looks at the request
+    private static class Application implements FilterChain {
+
+        private final Blackhole blackhole;
+
+        Application(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response) {
+            blackhole.consume(request);
+        }
+    }
+
+}
@@ -0,0 +1,263 @@
+package com.muantech.rollbar.java;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.json.JSONObject;
+
+/**
+ * Drives a RollbarAppender from many threads against a StubEndpoint and reports, every second and at the end, the
+ * items delivered per second, the latency from the append to the acknowledgement of the item, the drops and the
+ * heap growth.
+ *
+ * Options come as --name value:
+ * <ul>
+ * <li>threads (8), duration in seconds (30), rate of events per second and thread (0 for as fast as possible),
+ * throwable (false) and drain, the seconds left to deliver what's queued at the end (30);</li>
+ * <li>the failures of the endpoint: latency in milliseconds, throttle and errors (rates of 429 and 503 answers),
+ * retryAfter in seconds, resets and blackHole (rates);</li>
+ * <li>any other is an appender parameter, i.e. --maxInFlight 4 --batchSize 20. The batches go to the stub unless
+ * batchUrl is given.</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    private static final String MARKER = "load ";
+
+    private final Map<String, String> options;
+    private final StubEndpoint endpoint;
+    private final RollbarAppender appender;
+    private final Notifier notifier;
+
+    private final Histogram latency = new Histogram();
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private volatile boolean running = true;
+
+    // counts at the previous report
+    private long lastOffered;
+    private long lastDelivered;
+
+    private LoadTest(Map<String, String> options) throws Exception {
+        this.options = options;
+
+        endpoint = new StubEndpoint(0).start();
+        endpoint.setLatency(longOption("latency", 0), TimeUnit.MILLISECONDS);
+        endpoint.setThrottleRate(doubleOption("throttle", 0));
+        endpoint.setErrorRate(doubleOption("errors", 0));
+        endpoint.setRetryAfter((int) longOption("retryAfter", 1));
+        endpoint.setResetRate(doubleOption("resets", 0));
+        endpoint.setBlackHoleRate(doubleOption("blackHole", 0));
+        endpoint.setListener(new StubEndpoint.Listener() {
+            @Override
+            public void onItem(JSONObject item) {
+                onDelivered(item);
+            }
+        });
+
+        appender = new RollbarAppender("rollbar", null, PatternLayout.createDefaultLayout(), false, "token", "load-test",
+                new ArrayList<String>(), new NotifierConfig());
+        appender.setUrl(endpoint.getUrl());
+        appender.setOnlyThrowable(false);
+        appender.setBatchUrl(endpoint.getBatchUrl());
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            if (!isHarnessOption(option.getKey())) configure(appender, option.getKey(), option.getValue());
+        }
+        appender.start();
+        // kept for the summary, the appender lets go of it when it stops
+        notifier = appender.getNotifier();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Expected --name value, got " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        new LoadTest(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        int threads = (int) longOption("threads", 8);
+        long duration = longOption("duration", 30);
+        long drain = longOption("drain", 30);
+        double rate = doubleOption("rate", 0);
+        Throwable throwable = Boolean.parseBoolean(options.get("throwable")) ? Throwables.chain(1, 40) : null;
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        List<Thread> generators = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            Thread generator = new Thread(generate(rate, throwable), "load-" + i);
+            generators.add(generator);
+            generator.start();
+        }
+
+        System.out.println("   s   offered/s delivered/s   p50 ms   p99 ms    queued   dropped   retries  circuit  heap MB");
+        long start = System.nanoTime();
+        for (int second = 1; second <= duration; second++) {
+            report(second, start);
+        }
+
+        running = false;
+        for (Thread generator : generators) {
+            generator.join();
+        }
+
+        // what's still queued or waiting for a retry gets its chance
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drain);
+        long last = -1;
+        int second = (int) duration;
+        while (System.nanoTime() < deadline && (notifier.getQueueSize() > 0 || delivered.get() != last)) {
+            last = delivered.get();
+            report(++second, start);
+        }
+
+        appender.stop();
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+        summarize(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), heapAfter - heapBefore);
+        endpoint.stop();
+    }
+
+    private Runnable generate(final double rate, final Throwable throwable) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                long interval = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+                long next = System.nanoTime();
+                while (running) {
+                    LogEvent event = Log4jLogEvent.newBuilder()
+                            .setLoggerName("com.example.LoadTest")
+                            .setLevel(Level.ERROR)
+                            .setMessage(new SimpleMessage(MARKER + System.nanoTime()))
+                            .setThrown(throwable)
+                            .build();
+                    appender.append(event);
+                    offered.incrementAndGet();
+
+                    if (interval > 0) {
+                        next += interval;
+                        LockSupport.parkNanos(next - System.nanoTime());
+                    }
+                }
+            }
+        };
+    }
+
+    // the append time travels in the message
+    private void onDelivered(JSONObject item) {
+        JSONObject data = item.getJSONObject("data");
+        JSONObject message = data.getJSONObject("body").optJSONObject("message");
+        JSONObject custom = data.optJSONObject("custom");
+        // with a throwable the message is sent as the log custom value
+        String text = message != null ? message.optString("body", null) : custom != null ? custom.optString("log", null) : null;
+
+        delivered.incrementAndGet();
+        if (text != null && text.startsWith(MARKER)) {
+            latency.record(System.nanoTime() - Long.parseLong(text.substring(MARKER.length()).trim()));
+        }
+    }
+
+    private void report(int second, long start) throws InterruptedException {
+        long wakeUp = start + TimeUnit.SECONDS.toNanos(second);
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, wakeUp - System.nanoTime()));
+
+        long offeredNow = offered.get();
+        long deliveredNow = delivered.get();
+        NotifierStats.Snapshot stats = notifier.getStats();
+        Histogram.Snapshot latencies = latency.snapshot();
+
+        System.out.println(String.format("%4d %11d %11d %8.1f %8.1f %9d %9d %9d %8s %8d", second, offeredNow - lastOffered,
+                deliveredNow - lastDelivered, millis(latencies.getValueAtPercentile(0.5)), millis(latencies.getValueAtPercentile(0.99)),
+                stats.getQueueSize(), stats.getDroppedCount(), stats.getRetryCount(), stats.getCircuitState(),
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024)));
+
+        lastOffered = offeredNow;
+        lastDelivered = deliveredNow;
+    }
+
+    private void summarize(long elapsed, long heapGrowth) {
+        NotifierStats.Snapshot stats = notifier.getStats();
+        Histogram.Snapshot latencies = latency.snapshot();
+
+        System.out.println();
+        System.out.println("Offered:      " + offered.get() + " events");
+        System.out.println("Enqueued:     " + stats.getEnqueuedCount());
+        System.out.println("Delivered:    " + delivered.get() + String.format(" (%.0f items/s)", delivered.get() * 1000.0 / elapsed));
+        System.out.println(String.format("Latency ms:   p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f",
+                millis(latencies.getValueAtPercentile(0.5)), millis(latencies.getValueAtPercentile(0.9)),
+                millis(latencies.getValueAtPercentile(0.99)), millis(latencies.getValueAtPercentile(0.999)), millis(latencies.getMax())));
+        System.out.println("Dropped:      " + stats.getDroppedByReason());
+        System.out.println("Outcomes:     " + stats.getOutcomes());
+        System.out.println("Retries:      " + stats.getRetryCount());
+        System.out.println("Endpoint:     " + endpoint.getRequestCount() + " requests, " + endpoint.getThrottledCount() + " throttled, "
+                + endpoint.getErrorCount() + " errors, " + endpoint.getResetCount() + " resets, " + endpoint.getBlackHoledCount()
+                + " black-holed");
+        System.out.println(String.format("Heap growth:  %.1f MB", heapGrowth / (1024.0 * 1024)));
+    }
+
+    private static boolean isHarnessOption(String name) {
+        return name.equals("threads") || name.equals("duration") || name.equals("rate") || name.equals("throwable")
+                || name.equals("drain") || name.equals("latency") || name.equals("throttle") || name.equals("errors")
+                || name.equals("retryAfter") || name.equals("resets") || name.equals("blackHole");
+    }
+
+    // calls the setter of the appender parameter
+    private static void configure(RollbarAppender appender, String name, String value) throws Exception {
+        String setter = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (Method method : RollbarAppender.class.getMethods()) {
+            if (!method.getName().equals(setter) || method.getParameterTypes().length != 1) continue;
+
+            Class<?> type = method.getParameterTypes()[0];
+            if (type == String.class) {
+                method.invoke(appender, value);
+            } else if (type == int.class) {
+                method.invoke(appender, Integer.parseInt(value));
+            } else if (type == long.class) {
+                method.invoke(appender, Long.parseLong(value));
+            } else if (type == double.class) {
+                method.invoke(appender, Double.parseDouble(value));
+            } else if (type == boolean.class) {
+                method.invoke(appender, Boolean.parseBoolean(value));
+            } else {
+                continue;
+            }
+            return;
+        }
+        throw new IllegalArgumentException("Unknown option " + name);
+    }
+
+    private long longOption(String name, long defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    private double doubleOption(String name, double defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.muantech.rollbar.java;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the payload of a notification, as the org.json tree of NotifyBuilder.build and with the streaming
+ * writer, for a single exception or a deep cause chain and for a small or a large context.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotifyBuilderBenchmark {
+
+    // frames between two exceptions of the chain
+    private static final int DEPTH = 40;
+
+    @Param({ "0", "8" })
+    private int causes;
+
+    @Param({ "8", "128" })
+    private int contextSize;
+
+    private NotifyBuilder builder;
+    private Throwable throwable;
+    private Map<String, Object> contextMap;
+    private NotificationContext context;
+    private JsonWriter writer;
+
+    @Setup
+    public void setUp() throws JSONException, UnknownHostException {
+        builder = new NotifyBuilder("token", "benchmark");
+        throwable = Throwables.chain(causes, DEPTH);
+        contextMap = context(contextSize);
+        context = NotificationContext.fromMap(contextMap);
+        writer = new JsonWriter(16 * 1024);
+    }
+
+    static Map<String, Object> context(int size) {
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("url", "/checkout/confirm");
+        context.put("method", "POST");
+        context.put("user-ip", "203.0.113.42");
+        context.put("user-agent", "Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/115.0");
+        context.put("userId", "c-77");
+        context.put("username", "jdoe");
+        context.put("headers", "{\"Host\":\"shop.example.com\",\"Accept\":\"text/html\"}");
+
+        List<String> logs = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            logs.add("2024-05-01 12:00:0" + (i % 10) + " INFO  CheckoutService - step " + i + " of the checkout done");
+        }
+        context.put("logs", logs);
+
+        for (int i = context.size(); i < size; i++) {
+            context.put("custom.key" + i, "custom value number " + i);
+        }
+        return context;
+    }
+
+    @Benchmark
+    public JSONObject build() throws JSONException {
+        return builder.build("ERROR", "Payment of order A-1042 failed", throwable, contextMap);
+    }
+
+    @Benchmark
+    public int write() {
+        builder.write(writer.reset(), "ERROR", "Payment of order A-1042 failed", throwable, context);
+        return writer.size();
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.muantech.rollbar.java;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A notification all the way to the bytes of the request body, the way the sender does it with streamingJson on
+ * and off, and a batch body made of ready payloads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int BATCH_SIZE = 20;
+
+    private NotifyBuilder builder;
+    private Throwable throwable;
+    private Map<String, Object> contextMap;
+    private NotificationContext context;
+    private JsonWriter writer;
+    private List<byte[]> batch;
+
+    @Setup
+    public void setUp() throws JSONException, UnknownHostException {
+        builder = new NotifyBuilder("token", "benchmark");
+        throwable = Throwables.chain(2, 40);
+        contextMap = NotifyBuilderBenchmark.context(16);
+        context = NotificationContext.fromMap(contextMap);
+        writer = new JsonWriter(16 * 1024);
+
+        batch = new ArrayList<byte[]>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(streaming());
+        }
+    }
+
+    @Benchmark
+    public byte[] legacy() throws JSONException {
+        return HttpRequest.toBytes(builder.build("ERROR", "Payment of order A-1042 failed", throwable, contextMap).toString());
+    }
+
+    @Benchmark
+    public byte[] streaming() {
+        builder.write(writer.reset(), "ERROR", "Payment of order A-1042 failed", throwable, context);
+        return writer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] batchBody() {
+        return Batcher.toBody(batch);
+    }
+
+}
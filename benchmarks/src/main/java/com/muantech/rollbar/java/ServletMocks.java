@@ -0,0 +1,88 @@
+package com.muantech.rollbar.java;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Servlet objects for the benchmarks, made with dynamic proxies since the servlet API has no implementation here.
+ * Methods the library doesn't call return null, 0 or false.
+ */
+final class ServletMocks {
+
+    private ServletMocks() {}
+
+    // a browser request, with the usual headers and the parameters of a form post
+    static HttpServletRequest request(int headerCount, int paramCount) {
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+        headers.put("Host", "shop.example.com");
+        headers.put("User-Agent", "Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/115.0");
+        headers.put("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+        headers.put("Accept-Language", "en-US,en;q=0.5");
+        headers.put("Accept-Encoding", "gzip, deflate, br");
+        headers.put("X-Request-Id", "5f0c6f1e-93a4-4d8e-9a43-0d7c1b2f6a11");
+        for (int i = headers.size(); i < headerCount; i++) {
+            headers.put("X-Header-" + i, "value-" + i + "-0123456789abcdef");
+        }
+
+        final Map<String, String[]> params = new LinkedHashMap<String, String[]>();
+        for (int i = 0; i < paramCount; i++) {
+            params.put("param" + i, new String[] { "value " + i });
+        }
+
+        return proxy(HttpServletRequest.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getRequestURI")) return "/checkout/confirm";
+                if (name.equals("getMethod")) return "POST";
+                if (name.equals("getQueryString")) return "step=3&promo=SPRING";
+                if (name.equals("getRemoteAddr")) return "203.0.113.42";
+                if (name.equals("getHeader")) return headers.get(args[0]);
+                if (name.equals("getHeaderNames")) return Collections.enumeration(headers.keySet());
+                if (name.equals("getParameterMap")) return params;
+                if (name.equals("getAttributeNames")) return Collections.emptyEnumeration();
+                return defaultValue(method);
+            }
+        });
+    }
+
+    static ServletResponse response() {
+        return proxy(ServletResponse.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return defaultValue(method);
+            }
+        });
+    }
+
+    static FilterConfig filterConfig(final String capture) {
+        return proxy(FilterConfig.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getInitParameter") && "capture".equals(args[0])) return capture;
+                return defaultValue(method);
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ServletMocks.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        return null;
+    }
+
+}
@@ -0,0 +1,352 @@
+package com.muantech.rollbar.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * A Rollbar endpoint in the same JVM for load and failure tests. It accepts single items and batches (a JSON array),
+ * gzip-compressed or not, on keep-alive connections, and tells a listener about every item it acknowledges.
+ *
+ * Every request draws its fate at random from the configured rates: a 429 or a 503 with Retry-After, a connection
+ * reset, or a black hole that reads the request and never answers. The latency delays every answer. It's a plain
+ * socket server rather than com.sun.net.httpserver so that a reset is a real TCP RST.
+ */
+public class StubEndpoint {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte[] ACCEPTED = "{\"err\":0,\"result\":{}}".getBytes(ASCII);
+
+    public interface Listener {
+
+        // an item acknowledged with a 200, on the thread serving its connection
+        void onItem(JSONObject item);
+    }
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "StubEndpoint-connection");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private volatile Listener listener;
+
+    private volatile long latency;
+    private volatile double throttleRate;
+    private volatile double errorRate;
+    private volatile int retryAfter = 1;
+    private volatile double resetRate;
+    private volatile double blackHoleRate;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong blackHoled = new AtomicLong();
+
+    // 0 for any free port
+    public StubEndpoint(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+    }
+
+    public StubEndpoint start() {
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "StubEndpoint-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    public void stop() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    // the url of single items, the batches go to getBatchUrl()
+    public String getUrl() {
+        return "http://localhost:" + serverSocket.getLocalPort() + "/api/1/item/";
+    }
+
+    public String getBatchUrl() {
+        return "http://localhost:" + serverSocket.getLocalPort() + "/api/1/items/";
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setLatency(long latency, TimeUnit unit) {
+        this.latency = unit.toMillis(latency);
+    }
+
+    // fraction of the requests answered 429
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    // fraction of the requests answered 503
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    // seconds sent in the Retry-After of the 429 and 503 responses, 0 leaves the header out
+    public void setRetryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    // fraction of the requests whose connection is reset instead of answered
+    public void setResetRate(double resetRate) {
+        this.resetRate = resetRate;
+    }
+
+    // fraction of the requests never answered, the client only gets out with its timeout
+    public void setBlackHoleRate(double blackHoleRate) {
+        this.blackHoleRate = blackHoleRate;
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // closed
+                return;
+            }
+            connections.execute(new Runnable() {
+                @Override
+                public void run() {
+                    serve(socket);
+                }
+            });
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+
+            // one request after the other while the client keeps the connection
+            while (true) {
+                Request request = Request.read(in);
+                if (request == null) return;
+                requests.incrementAndGet();
+
+                if (latency > 0) Thread.sleep(latency);
+
+                double draw = ThreadLocalRandom.current().nextDouble();
+                if ((draw -= blackHoleRate) < 0) {
+                    blackHoled.incrementAndGet();
+                    drain(in);
+                    return;
+                }
+                if ((draw -= resetRate) < 0) {
+                    resets.incrementAndGet();
+                    socket.setSoLinger(true, 0);
+                    return;
+                }
+                if ((draw -= throttleRate) < 0) {
+                    throttled.incrementAndGet();
+                    respond(out, 429, "Too Many Requests", retryAfter);
+                    continue;
+                }
+                if ((draw -= errorRate) < 0) {
+                    errors.incrementAndGet();
+                    respond(out, 503, "Service Unavailable", retryAfter);
+                    continue;
+                }
+
+                if (!acknowledge(request)) {
+                    respond(out, 400, "Bad Request", 0);
+                    continue;
+                }
+                respond(out, 200, "OK", 0);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // the client went away
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+
+    // false if the body isn't an item or an array of them
+    private boolean acknowledge(Request request) {
+        Object json;
+        try {
+            json = new JSONTokener(new String(request.body, UTF_8)).nextValue();
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        Listener listener = this.listener;
+        if (json instanceof JSONArray) {
+            JSONArray batch = (JSONArray) json;
+            items.addAndGet(batch.length());
+            if (listener != null) {
+                for (int i = 0; i < batch.length(); i++) {
+                    listener.onItem(batch.getJSONObject(i));
+                }
+            }
+            return true;
+        }
+        if (json instanceof JSONObject) {
+            items.incrementAndGet();
+            if (listener != null) listener.onItem((JSONObject) json);
+            return true;
+        }
+        return false;
+    }
+
+    private static void respond(OutputStream out, int status, String reason, int retryAfter) throws IOException {
+        byte[] body = status == 200 ? ACCEPTED : new byte[0];
+
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n");
+        head.append("Content-Type: application/json\r\n");
+        head.append("Content-Length: ").append(body.length).append("\r\n");
+        if (retryAfter > 0 && status != 200) head.append("Retry-After: ").append(retryAfter).append("\r\n");
+        head.append("\r\n");
+
+        out.write(head.toString().getBytes(ASCII));
+        out.write(body);
+        out.flush();
+    }
+
+    // reads until the client gives up on the connection
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[512];
+        while (in.read(buffer) != -1) {
+            // discard
+        }
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    // items acknowledged with a 200
+    public long getItemCount() {
+        return items.get();
+    }
+
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    public long getResetCount() {
+        return resets.get();
+    }
+
+    public long getBlackHoledCount() {
+        return blackHoled.get();
+    }
+
+    private static class Request {
+
+        private final byte[] body;
+
+        private Request(byte[] body) {
+            this.body = body;
+        }
+
+        // null at the end of the connection
+        static Request read(InputStream in) throws IOException {
+            String requestLine = readLine(in);
+            if (requestLine == null) return null;
+
+            int length = 0;
+            boolean gzipped = false;
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon < 0) continue;
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.US);
+                String value = line.substring(colon + 1).trim();
+                if (name.equals("content-length")) length = Integer.parseInt(value);
+                if (name.equals("content-encoding")) gzipped = value.equalsIgnoreCase("gzip");
+            }
+
+            byte[] body = readFully(in, length);
+            return new Request(gzipped ? gunzip(body) : body);
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    int end = line.length();
+                    if (end > 0 && line.charAt(end - 1) == '\r') line.setLength(end - 1);
+                    return line.toString();
+                }
+                line.append((char) b);
+            }
+            return line.length() == 0 ? null : line.toString();
+        }
+
+        private static byte[] readFully(InputStream in, int length) throws IOException {
+            byte[] body = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int count = in.read(body, read, length - read);
+                if (count == -1) throw new EOFException();
+                read += count;
+            }
+            return body;
+        }
+
+        private static byte[] gunzip(byte[] body) throws IOException {
+            GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body));
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 4);
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        }
+    }
+
+}
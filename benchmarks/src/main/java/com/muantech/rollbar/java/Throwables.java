@@ -0,0 +1,24 @@
+package com.muantech.rollbar.java;
+
+/**
+ * Exceptions shaped like the ones of a web application: thrown deep in the stack and wrapped on their way up.
+ */
+final class Throwables {
+
+    private Throwables() {}
+
+    // causes wrapped exceptions, each thrown depth frames below the previous one
+    static Throwable chain(int causes, int depth) {
+        Throwable throwable = null;
+        for (int i = 0; i <= causes; i++) {
+            throwable = throwAt(depth, "failure " + i, throwable);
+        }
+        return throwable;
+    }
+
+    private static Throwable throwAt(int depth, String message, Throwable cause) {
+        if (depth > 0) return throwAt(depth - 1, message, cause);
+        return cause == null ? new IllegalStateException(message) : new RuntimeException(message, cause);
+    }
+
+}
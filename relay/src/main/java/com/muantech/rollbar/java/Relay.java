@@ -0,0 +1,330 @@
+package com.muantech.rollbar.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import com.muantech.rollbar.java.RollbarNotifier.Level;
+
+/**
+ * Receives the items of every JVM on the host, sent by RelayTransport as UDP datagrams, and forwards them to the
+ * endpoint with a single notifier: one queue, a few keep-alive connections, batches when a batchUrl is given, and
+ * the retries, circuit breaker and spool of the library.
+ *
+ * Repeats of the same item (same access token, environment and body) within the dedup window are only counted,
+ * and when the window closes the last of them is forwarded with the number of occurrences, like the appender
+ * de-duplication does within a JVM.
+ *
+ * Options come as --name value: bind (127.0.0.1), port (7799), url of the endpoint, dedupWindow in milliseconds
+ * (5000, 0 disables it), report, the seconds between two lines of counts (60, 0 for none), and any other is a
+ * NotifierConfig parameter, i.e. --maxInFlight 8 --spoolDir /var/spool/rollbar.
+ */
+public class Relay {
+
+    public static final int DEFAULT_PORT = 7799;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int MAX_DEDUP_WINDOWS = 1024;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private final DatagramChannel channel;
+    private final Notifier notifier;
+    private final long dedupWindow;
+    private final long shutdownTimeout;
+
+    private final Map<String, Window> windows = new LinkedHashMap<String, Window>();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public Relay(InetSocketAddress address, String url, long dedupWindow, NotifierConfig config) throws Exception {
+        this.dedupWindow = TimeUnit.MILLISECONDS.toNanos(dedupWindow);
+
+        // the relay closes the notifier itself, after forwarding the open windows
+        this.shutdownTimeout = config.getShutdownTimeout();
+        config.setShutdownTimeout(0);
+        // and never to another relay
+        config.setRelayAddress(null);
+        // the items carry their own access token and environment
+        this.notifier = new Notifier("relay", url, null, null, config);
+
+        channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+        channel.bind(address);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Expected --name value, got " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        NotifierConfig config = new NotifierConfig();
+        config.setMaxInFlight(DEFAULT_MAX_IN_FLIGHT);
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            if (!isRelayOption(option.getKey())) configure(config, option.getKey(), option.getValue());
+        }
+
+        InetSocketAddress address = new InetSocketAddress(option(options, "bind", "127.0.0.1"),
+                Integer.parseInt(option(options, "port", String.valueOf(DEFAULT_PORT))));
+        String url = option(options, "url", "https://api.rollbar.com/api/1/item/");
+        final Relay relay = new Relay(address, url, Long.parseLong(option(options, "dedupWindow", "5000")), config);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                relay.close();
+            }
+        }, "RollbarRelay-shutdown"));
+
+        long report = Long.parseLong(option(options, "report", "60"));
+        if (report > 0) {
+            RollbarNotifier.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    relay.report();
+                }
+            }, report, TimeUnit.SECONDS);
+        }
+
+        System.out.println("Relaying from " + address + " to " + url);
+        relay.run();
+    }
+
+    // Receives until the channel is closed
+    public void run() throws IOException {
+        if (dedupWindow > 0) {
+            RollbarNotifier.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    sweep();
+                }
+            }, TimeUnit.NANOSECONDS.toMillis(dedupWindow), TimeUnit.MILLISECONDS);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(RelayTransport.MAX_DATAGRAM);
+        while (true) {
+            buffer.clear();
+            try {
+                channel.receive(buffer);
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            buffer.flip();
+            byte[] datagram = new byte[buffer.remaining()];
+            buffer.get(datagram);
+
+            received.incrementAndGet();
+            try {
+                onItem(isGzipped(datagram) ? gunzip(datagram) : datagram);
+            } catch (Exception e) {
+                malformed.incrementAndGet();
+            }
+        }
+    }
+
+    private void onItem(byte[] payload) {
+        JSONObject item = (JSONObject) new JSONTokener(new String(payload, UTF_8)).nextValue();
+        JSONObject data = item.getJSONObject("data");
+        Level level = toLevel(data.optString("level"));
+
+        if (dedupWindow <= 0) {
+            forward(level, payload);
+            return;
+        }
+
+        String key = item.optString("access_token") + '\n' + data.optString("environment") + '\n' + data.opt("body");
+        synchronized (windows) {
+            Window window = windows.get(key);
+            if (window != null && !window.isExpired()) {
+                window.repeat(level, item);
+                deduplicated.incrementAndGet();
+                return;
+            }
+
+            if (window != null) {
+                windows.remove(key);
+                close(window);
+            }
+            // past the limit the items go through without de-duplication
+            if (windows.size() < MAX_DEDUP_WINDOWS) windows.put(key, new Window());
+        }
+        forward(level, payload);
+    }
+
+    // Forwards the repeats of the windows that are over
+    void sweep() {
+        List<Window> closed = new ArrayList<Window>();
+        synchronized (windows) {
+            for (Iterator<Window> iterator = windows.values().iterator(); iterator.hasNext();) {
+                Window window = iterator.next();
+                if (window.isExpired()) {
+                    iterator.remove();
+                    closed.add(window);
+                }
+            }
+        }
+        for (Window window : closed) {
+            close(window);
+        }
+    }
+
+    private void close(Window window) {
+        if (window.repeats == 0) return;
+
+        JSONObject data = window.last.getJSONObject("data");
+        JSONObject custom = data.optJSONObject("custom");
+        if (custom == null) {
+            custom = new JSONObject();
+            data.put("custom", custom);
+        }
+        custom.put(Deduplicator.OCCURRENCES_KEY, String.valueOf(window.repeats + 1));
+        forward(window.level, HttpRequest.toBytes(window.last.toString()));
+    }
+
+    private void forward(Level level, byte[] payload) {
+        if (!notifier.offerPayload(level, payload)) dropped.incrementAndGet();
+    }
+
+    // Stops receiving, forwards the open windows and sends what's queued within the shutdown timeout
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+
+        List<Window> open;
+        synchronized (windows) {
+            open = new ArrayList<Window>(windows.values());
+            windows.clear();
+        }
+        for (Window window : open) {
+            close(window);
+        }
+
+        notifier.close(shutdownTimeout, TimeUnit.MILLISECONDS);
+        report();
+    }
+
+    void report() {
+        NotifierStats.Snapshot stats = notifier.getStats();
+        System.out.println("received " + received.get() + ", malformed " + malformed.get() + ", deduplicated "
+                + deduplicated.get() + ", dropped " + (dropped.get() + stats.getDroppedCount()) + ", queued " + stats.getQueueSize()
+                + ", outcomes " + stats.getOutcomes() + ", circuit " + stats.getCircuitState());
+    }
+
+    public Notifier getNotifier() {
+        return notifier;
+    }
+
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    public long getDeduplicatedCount() {
+        return deduplicated.get();
+    }
+
+    // the levels of the payload, ERROR for the unknown ones
+    private static Level toLevel(String level) {
+        String name = level.toUpperCase(Locale.US);
+        if (name.equals("WARN")) return Level.WARNING;
+        for (Level candidate : Level.values()) {
+            if (candidate.name().equals(name)) return candidate;
+        }
+        return Level.ERROR;
+    }
+
+    private static boolean isGzipped(byte[] datagram) {
+        return datagram.length > 2 && (datagram[0] & 0xff) == 0x1f && (datagram[1] & 0xff) == 0x8b;
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 4);
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isRelayOption(String name) {
+        return name.equals("bind") || name.equals("port") || name.equals("url") || name.equals("dedupWindow")
+                || name.equals("report");
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    // calls the setter of the NotifierConfig parameter
+    private static void configure(NotifierConfig config, String name, String value) throws Exception {
+        String setter = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (Method method : NotifierConfig.class.getMethods()) {
+            if (!method.getName().equals(setter) || method.getParameterTypes().length != 1) continue;
+
+            Class<?> type = method.getParameterTypes()[0];
+            if (type == String.class) {
+                method.invoke(config, value);
+            } else if (type == int.class) {
+                method.invoke(config, Integer.parseInt(value));
+            } else if (type == long.class) {
+                method.invoke(config, Long.parseLong(value));
+            } else if (type == boolean.class) {
+                method.invoke(config, Boolean.parseBoolean(value));
+            } else if (type == OverflowPolicy.class) {
+                method.invoke(config, OverflowPolicy.toPolicy(value, config.getOverflowPolicy()));
+            } else {
+                continue;
+            }
+            return;
+        }
+        throw new IllegalArgumentException("Unknown option " + name);
+    }
+
+    // repeats of an item since the first one was forwarded
+    private class Window {
+
+        private final long opened = System.nanoTime();
+        private int repeats;
+        private Level level;
+        private JSONObject last;
+
+        void repeat(Level level, JSONObject item) {
+            repeats++;
+            this.level = level;
+            this.last = item;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - opened >= dedupWindow;
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.muantech.rollbar.java;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps up to a fixed window of requests in flight so a slow response only holds its own slot.
+ *
+ * The caller returns as soon as the request has a slot, and only waits while the whole window is busy. Every
+ * request gets a deadline, after which its connection is aborted and the slot is released.
+ */
+public class AsyncTransport implements Transport {
+
+    private final int maxInFlight;
+    private final Semaphore window;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    private final long deadline;
+
+    public AsyncTransport(int maxInFlight, long deadline, TimeUnit unit, ThreadFactory threadFactory,
+            ScheduledExecutorService timer) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive");
+
+        this.maxInFlight = maxInFlight;
+        this.window = new Semaphore(maxInFlight);
+        this.workers = Executors.newFixedThreadPool(maxInFlight, threadFactory);
+        this.timer = timer;
+        this.deadline = unit.toNanos(deadline);
+    }
+
+    @Override
+    public void send(HttpRequest request, Callback callback) {
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            callback.onComplete(request, false);
+            return;
+        }
+
+        try {
+            workers.execute(new Exchange(request, callback));
+        } catch (RejectedExecutionException e) {
+            window.release();
+            callback.onComplete(request, false);
+        }
+    }
+
+    public int getInFlight() {
+        return maxInFlight - window.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+
+    private class Exchange implements Runnable {
+
+        private final HttpRequest request;
+        private final Callback callback;
+
+        Exchange(HttpRequest request, Callback callback) {
+            this.request = request;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            boolean success = false;
+            ScheduledFuture<?> watchdog = timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    request.abort();
+                }
+            }, deadline, TimeUnit.NANOSECONDS);
+
+            try {
+                success = request.execute();
+            } finally {
+                watchdog.cancel(false);
+                window.release();
+            }
+
+            callback.onComplete(request, success);
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.muantech.rollbar.java;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects serialized item payloads until the count cap, the byte cap or the linger time is reached.
+ * It is owned by the sender thread and is not thread-safe.
+ */
+public class Batcher {
+
+    private final int maxItems;
+    private final int maxBytes;
+    private final long linger;
+
+    private final List<byte[]> items = new ArrayList<byte[]>();
+    private int bytes;
+    private long firstItemTime;
+
+    public Batcher(int maxItems, int maxBytes, long linger, TimeUnit unit) {
+        this.maxItems = Math.max(1, maxItems);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.linger = unit.toNanos(linger);
+    }
+
+    public boolean fits(byte[] payload) {
+        return items.isEmpty() || bytes + payload.length + 1 <= maxBytes;
+    }
+
+    public void add(byte[] payload) {
+        if (items.isEmpty()) firstItemTime = System.nanoTime();
+        items.add(payload);
+        bytes += payload.length + 1;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public boolean isReady() {
+        if (items.isEmpty()) return false;
+        return items.size() >= maxItems || bytes >= maxBytes || remainingLinger(TimeUnit.NANOSECONDS) <= 0;
+    }
+
+    public long remainingLinger(TimeUnit unit) {
+        if (items.isEmpty()) return unit.convert(linger, TimeUnit.NANOSECONDS);
+        return unit.convert(firstItemTime + linger - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    // Hands the collected payloads over and starts a new batch
+    public List<byte[]> drain() {
+        List<byte[]> drained = new ArrayList<byte[]>(items);
+        items.clear();
+        bytes = 0;
+        return drained;
+    }
+
+    // The batch body is a JSON array of the single item payloads
+    public static byte[] toBody(List<byte[]> payloads) {
+        int size = 1;
+        for (byte[] payload : payloads) {
+            size += payload.length + 1;
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(size);
+        body.write('[');
+        for (int i = 0; i < payloads.size(); i++) {
+            if (i > 0) body.write(',');
+            byte[] payload = payloads.get(i);
+            body.write(payload, 0, payload.length);
+        }
+        body.write(']');
+        return body.toByteArray();
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.muantech.rollbar.java;
+
+/**
+ * Executes every request on the calling thread, one at a time.
+ */
+public class BlockingTransport implements Transport {
+
+    @Override
+    public void send(HttpRequest request, Callback callback) {
+        callback.onComplete(request, request.execute());
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
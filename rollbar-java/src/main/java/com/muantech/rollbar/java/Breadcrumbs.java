@@ -0,0 +1,259 @@
+package com.muantech.rollbar.java;
+
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.ThreadContext.ContextStack;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.ThrowableProxy;
+import org.apache.logging.log4j.message.Message;
+
+/**
+ * Fixed-size ring of the last log events, attached to notifications as their "logs".
+ *
+ * The slots are allocated once and written in place, so adding an event allocates nothing. Logging threads claim a
+ * sequence number with an atomic increment, mark the slot as being written with a CAS on its stamp, copy the
+ * event's references and publish the stamp of their number, so events reused by the async loggers can be kept as
+ * well. Nothing is locked: a writer lapped by the ring, or finding its slot still being written by the writer it
+ * lapped, leaves its event out. A snapshot copies the slots carrying the stamps it expects and keeps a copy only if
+ * the stamp didn't change meanwhile. The layout runs when a notification is built and only for the events it
+ * carries.
+ */
+public class Breadcrumbs {
+
+    // the stamp of a slot is its number shifted left, plus one while it's being written
+    private static final long EMPTY = -1L << 1;
+
+    private final int capacity;
+    private final Slot[] slots;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public Breadcrumbs(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.slots = new Slot[this.capacity];
+        for (int i = 0; i < this.capacity; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    public void add(LogEvent event) {
+        long number = sequence.getAndIncrement();
+        Slot slot = slots[(int) (number % capacity)];
+
+        while (true) {
+            long stamp = slot.stamp.get();
+            if ((stamp >> 1) >= number || (stamp & 1) != 0) return;
+            if (slot.stamp.compareAndSet(stamp, number << 1 | 1)) break;
+        }
+        slot.entry.set(event);
+        slot.stamp.set(number << 1);
+    }
+
+    // The events currently held, oldest first, formatted by the layout when they are read
+    public List<String> snapshot(Layout<? extends Serializable> layout) {
+        long end = sequence.get();
+        int size = (int) Math.min(end, capacity);
+
+        LogEvent[] snapshot = new LogEvent[size];
+        int count = 0;
+        for (long i = end - size; i < end; i++) {
+            // an entry not published yet, or already replaced by a newer one, is left out
+            Slot slot = slots[(int) (i % capacity)];
+            long stamp = i << 1;
+            if (slot.stamp.get() != stamp) continue;
+
+            Entry copy = new Entry();
+            copy.set(slot.entry);
+            if (slot.stamp.get() == stamp) snapshot[count++] = copy;
+        }
+
+        return new FormattedEvents(snapshot, count, layout);
+    }
+
+    // Only the slots used so far are cleared, so a buffer that saw a few lines is cheap to recycle
+    public void clear() {
+        int used = (int) Math.min(sequence.get(), capacity);
+        for (int i = 0; i < used; i++) {
+            slots[i].entry.clear();
+            slots[i].stamp.set(EMPTY);
+        }
+        sequence.set(0);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private static class Slot {
+
+        final AtomicLong stamp = new AtomicLong(EMPTY);
+        final Entry entry = new Entry();
+    }
+
+    // The references of an event, volatile so a snapshot reading them between two reads of the stamp sees them in order
+    private static class Entry implements LogEvent {
+
+        private static final long serialVersionUID = 1L;
+
+        private volatile String loggerName;
+        private volatile Marker marker;
+        private volatile String loggerFqcn;
+        private volatile Level level;
+        private volatile Message message;
+        private volatile Throwable thrown;
+        private volatile Map<String, String> contextMap;
+        private volatile ContextStack contextStack;
+        private volatile String threadName;
+        private volatile StackTraceElement source;
+        private volatile long timeMillis;
+
+        private transient ThrowableProxy thrownProxy;
+
+        void set(LogEvent event) {
+            this.loggerName = event.getLoggerName();
+            this.marker = event.getMarker();
+            this.loggerFqcn = event.getLoggerFqcn();
+            this.level = event.getLevel();
+            this.message = event.getMessage();
+            this.thrown = event.getThrown();
+            this.contextMap = event.getContextMap();
+            this.contextStack = event.getContextStack();
+            this.threadName = event.getThreadName();
+            this.source = event.isIncludeLocation() ? event.getSource() : null;
+            this.timeMillis = event.getTimeMillis();
+            this.thrownProxy = null;
+        }
+
+        // the messages and throwables aren't kept past the recycling of the buffer
+        void clear() {
+            this.marker = null;
+            this.message = null;
+            this.thrown = null;
+            this.contextMap = null;
+            this.contextStack = null;
+            this.source = null;
+            this.thrownProxy = null;
+        }
+
+        @Override
+        public Map<String, String> getContextMap() {
+            return contextMap;
+        }
+
+        @Override
+        public ContextStack getContextStack() {
+            return contextStack;
+        }
+
+        @Override
+        public String getLoggerFqcn() {
+            return loggerFqcn;
+        }
+
+        @Override
+        public Level getLevel() {
+            return level;
+        }
+
+        @Override
+        public String getLoggerName() {
+            return loggerName;
+        }
+
+        @Override
+        public Marker getMarker() {
+            return marker;
+        }
+
+        @Override
+        public Message getMessage() {
+            return message;
+        }
+
+        @Override
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        @Override
+        public StackTraceElement getSource() {
+            return source;
+        }
+
+        @Override
+        public String getThreadName() {
+            return threadName;
+        }
+
+        @Override
+        public Throwable getThrown() {
+            return thrown;
+        }
+
+        // built on first use, as the layouts printing extended stack traces ask for it
+        @Override
+        public ThrowableProxy getThrownProxy() {
+            if (thrownProxy == null && thrown != null) thrownProxy = new ThrowableProxy(thrown);
+            return thrownProxy;
+        }
+
+        @Override
+        public boolean isEndOfBatch() {
+            return false;
+        }
+
+        @Override
+        public boolean isIncludeLocation() {
+            return source != null;
+        }
+
+        // a copy of the event, the flags are its own
+        @Override
+        public void setEndOfBatch(boolean endOfBatch) {
+        }
+
+        @Override
+        public void setIncludeLocation(boolean includeLocation) {
+        }
+    }
+
+    private static class FormattedEvents extends AbstractList<String> {
+
+        private final LogEvent[] events;
+        private final int size;
+        private final Layout<? extends Serializable> layout;
+
+        FormattedEvents(LogEvent[] events, int size, Layout<? extends Serializable> layout) {
+            this.events = events;
+            this.size = size;
+            this.layout = layout;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index >= size) throw new IndexOutOfBoundsException(String.valueOf(index));
+
+            LogEvent event = events[index];
+            if (layout == null) return event.getMessage().getFormattedMessage();
+
+            try {
+                return new String(layout.toByteArray(event), "UTF-8").trim();
+            } catch (UnsupportedEncodingException e) {
+                return new String(layout.toByteArray(event)).trim();
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
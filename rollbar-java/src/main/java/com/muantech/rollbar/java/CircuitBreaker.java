@@ -0,0 +1,187 @@
+package com.muantech.rollbar.java;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.status.StatusLogger;
+
+/**
+ * Stops sending to an endpoint that keeps failing or answering too slowly, so nothing waits on its timeouts.
+ *
+ * CLOSED keeps the result of the last requests in a window, and a request counts as a failure if it got a
+ * transient or throttled outcome or took longer than the slow call threshold. Once the window is full and the
+ * failure rate reaches the threshold the breaker OPENs: nothing is sent and the items stay where they are, in the
+ * lanes or the spool. After the open time a single request goes out as a probe (HALF_OPEN), its success closes the
+ * breaker and its failure opens it again. The probe is the first request sent once allowRequest admitted it, so
+ * the late results of requests sent before the breaker opened don't decide anything.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public interface Listener {
+
+        void onStateChange(State from, State to);
+    }
+
+    private final int failureRate;
+    private final long slowCall;
+    private final long openTime;
+
+    // results of the last requests, true for a failure
+    private final boolean[] window;
+    private int position;
+    private int calls;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probing;
+    private long probeStartedAt;
+    private HttpRequest probe;
+
+    private long rejected;
+
+    private final List<Listener> listeners;
+
+    // failureRate is a percentage of the windowSize last requests, the listeners may change while it runs
+    public CircuitBreaker(int failureRate, long slowCall, long openTime, int windowSize, TimeUnit unit, List<Listener> listeners) {
+        this.failureRate = failureRate;
+        this.slowCall = unit.toNanos(slowCall);
+        this.openTime = unit.toNanos(openTime);
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.listeners = listeners;
+    }
+
+    /**
+     * Whether a request may be sent now. When it returns true in HALF_OPEN the caller sends the probe and reports
+     * it with onComplete, or gives the turn back with cancelProbe if it had nothing to send after all.
+     */
+    public boolean allowRequest() {
+        synchronized (this) {
+            switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                // a probe that never reported back, i.e. its item failed to serialize, is replaced
+                if (probing && System.nanoTime() - probeStartedAt < openTime) {
+                    rejected++;
+                    return false;
+                }
+                probing = true;
+                probeStartedAt = System.nanoTime();
+                probe = null;
+                return true;
+            default:
+                if (System.nanoTime() - openedAt < openTime) {
+                    rejected++;
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = true;
+                probeStartedAt = System.nanoTime();
+                probe = null;
+            }
+        }
+        fire(State.OPEN, State.HALF_OPEN);
+        return true;
+    }
+
+    // nanoseconds until the next probe may be sent, 0 when requests are allowed
+    public synchronized long remainingOpenTime() {
+        if (state != State.OPEN) return 0;
+        return Math.max(0, openTime - (System.nanoTime() - openedAt));
+    }
+
+    // the next caller probes instead
+    public synchronized void cancelProbe() {
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            probe = null;
+        }
+    }
+
+    // Called as a request is sent, the first one after allowRequest admitted a probe is the probe
+    public synchronized void onSend(HttpRequest request) {
+        if (state == State.HALF_OPEN && probing && probe == null) probe = request;
+    }
+
+    public void onComplete(HttpRequest request) {
+        Outcome outcome = request.getOutcome();
+        boolean failed = outcome == null || outcome.isRetryable() || (slowCall > 0 && request.getLatency() > slowCall);
+
+        State from;
+        State to;
+        synchronized (this) {
+            from = state;
+            if (state == State.HALF_OPEN) {
+                if (!probing || request != probe) return;
+                probing = false;
+                probe = null;
+                if (failed) {
+                    open();
+                } else {
+                    close();
+                }
+            } else if (state == State.CLOSED) {
+                record(failed);
+                if (calls == window.length && failures * 100 >= failureRate * calls) open();
+            }
+            // results of requests sent before the breaker opened don't change anything
+            to = state;
+        }
+        if (from != to) fire(from, to);
+    }
+
+    private void record(boolean failed) {
+        if (calls == window.length) {
+            if (window[position]) failures--;
+        } else {
+            calls++;
+        }
+        window[position] = failed;
+        if (failed) failures++;
+        position = (position + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        position = 0;
+        calls = 0;
+        failures = 0;
+    }
+
+    private void fire(State from, State to) {
+        if (to == State.OPEN) {
+            StatusLogger.getLogger().warn("The Rollbar endpoint is failing, holding the items for "
+                    + TimeUnit.NANOSECONDS.toMillis(openTime) + " ms.");
+        } else if (to == State.CLOSED) {
+            StatusLogger.getLogger().warn("The Rollbar endpoint is back, sending the items again.");
+        }
+
+        for (Listener listener : listeners) {
+            try {
+                listener.onStateChange(from, to);
+            } catch (Throwable e) {
+                StatusLogger.getLogger().error("Error in a circuit breaker listener.", e);
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    // requests held back while the breaker was open
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.muantech.rollbar.java;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses repeats of the same error into one item per time window.
+ *
+ * The first occurrence of a fingerprint opens a window and is notified right away. Occurrences inside the window
+ * only increment a counter, and when the window closes a single item carrying the number of occurrences is
+ * notified on behalf of all of them.
+ *
+ * A window counts repeats until it's closed, and the count and the closing are a single atomic value, so every
+ * repeat is either in the summary or, arriving once the window is closed, opens the next window. Windows whose
+ * first occurrence isn't filled in yet stay open past their time, the summary can't be built without it.
+ */
+public class Deduplicator {
+
+    public static final String OCCURRENCES_KEY = "occurrences";
+
+    private final Notifier notifier;
+    private final long window;
+    private final int frames;
+    private final int maxWindows;
+
+    private final ConcurrentHashMap<Long, Window> windows = new ConcurrentHashMap<Long, Window>();
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    // the summaries of the repeats go to the notifier
+    public Deduplicator(Notifier notifier, long window, TimeUnit unit, int frames, int maxWindows) {
+        this.notifier = notifier;
+        this.window = unit.toNanos(window);
+        this.frames = frames;
+        this.maxWindows = maxWindows;
+    }
+
+    /**
+     * Hash of the exception class, its top frames and the message template, without formatting the message or
+     * touching the frame strings.
+     */
+    public long fingerprint(String template, Throwable throwable) {
+        long hash = 1125899906842597L;
+        hash = mix(hash, template == null ? 0 : template.hashCode());
+
+        if (throwable != null) {
+            hash = mix(hash, throwable.getClass().getName().hashCode());
+            StackTraceElement[] elements = throwable.getStackTrace();
+            int top = Math.min(frames, elements.length);
+            for (int i = 0; i < top; i++) {
+                hash = mix(hash, elements[i].hashCode());
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The window opened by this occurrence, to be filled with what gets notified, or null if the occurrence was
+     * counted in an open window and must not be notified.
+     */
+    public Window record(long fingerprint) {
+        long now = System.nanoTime();
+
+        Window current = windows.get(fingerprint);
+        // a window closed meanwhile doesn't take the repeat, it's replaced like an expired one
+        if (current != null && now - current.start < window && current.repeat()) {
+            suppressed.incrementAndGet();
+            return null;
+        }
+
+        // a full table doesn't deduplicate new fingerprints until the next sweep
+        if (current == null && windows.size() >= maxWindows) return new Window(now);
+
+        Window opened = new Window(now);
+        if (current == null ? windows.putIfAbsent(fingerprint, opened) == null : windows.replace(fingerprint, current, opened)) {
+            if (current != null) close(current, opened);
+            return opened;
+        }
+
+        // another thread opened or closed the window first
+        return record(fingerprint);
+    }
+
+    // Closes the expired windows, notifying the ones that saw repeats
+    public void sweep() {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<Long, Window>> it = windows.entrySet().iterator(); it.hasNext();) {
+            Window current = it.next().getValue();
+            long age = now - current.start;
+            // an unfilled window is given another window of time, past it its first occurrence failed to be notified
+            if (age >= window && (current.isFilled() || age >= 2 * window)) {
+                it.remove();
+                close(current, null);
+            }
+        }
+    }
+
+    // Closes every window, as on shutdown
+    public void flush() {
+        for (Iterator<Window> it = windows.values().iterator(); it.hasNext();) {
+            Window current = it.next();
+            it.remove();
+            close(current, null);
+        }
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    // The repeats of an unfilled window go to the window replacing it, if any, as there's nothing to summarize them
+    private void close(Window closed, Window next) {
+        long repeats = closed.close();
+        if (repeats == 0) return;
+
+        if (!closed.isFilled()) {
+            if (next != null) next.add(repeats);
+            return;
+        }
+
+        NotificationContext context = closed.context != null ? closed.context : NotificationContext.obtain();
+        closed.context = null;
+        context.put(OCCURRENCES_KEY, String.valueOf(repeats + 1));
+
+        notifier.notify(closed.level, closed.message, closed.throwable, context);
+    }
+
+    private static long mix(long hash, int value) {
+        hash ^= value;
+        hash *= 0x100000001b3L;
+        return hash ^ (hash >>> 29);
+    }
+
+    public static class Window {
+
+        private static final long CLOSED = -1;
+
+        private final long start;
+        // the repeats counted while the window is open, then CLOSED
+        private final AtomicLong repeats = new AtomicLong();
+
+        private volatile boolean filled;
+        private RollbarNotifier.Level level;
+        private String message;
+        private Throwable throwable;
+        private NotificationContext context;
+
+        Window(long start) {
+            this.start = start;
+        }
+
+        // what the first occurrence notified, reused for the item closing the window, the context must be a copy
+        // of the one notified since that one is recycled once it's sent
+        public void fill(RollbarNotifier.Level level, String message, Throwable throwable, NotificationContext context) {
+            this.level = level;
+            this.message = message;
+            this.throwable = throwable;
+            this.context = context;
+            this.filled = true;
+        }
+
+        boolean isFilled() {
+            return filled;
+        }
+
+        // false once the window is closed
+        boolean repeat() {
+            return add(1);
+        }
+
+        boolean add(long count) {
+            while (true) {
+                long current = repeats.get();
+                if (current == CLOSED) return false;
+                if (repeats.compareAndSet(current, current + count)) return true;
+            }
+        }
+
+        // the repeats counted, none is counted afterwards
+        long close() {
+            long counted = repeats.getAndSet(CLOSED);
+            return counted == CLOSED ? 0 : counted;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.muantech.rollbar.java;
+
+/**
+ * Java Flight Recorder events of the notification pipeline: the appender deciding what to do with a log event, the
+ * payload being built and every HTTP attempt.
+ *
+ * jdk.jfr isn't part of the Java 8 API, so the events live in JfrFlightEvents, compiled for Java 11 from
+ * src/main/java11 and loaded by name. On a runtime that can't load it every begin method returns null, and so do
+ * they while the event is disabled, then nothing else is done.
+ */
+abstract class FlightEvents {
+
+    private static final FlightEvents INSTANCE = load();
+
+    private static FlightEvents load() {
+        try {
+            return (FlightEvents) Class.forName("com.muantech.rollbar.java.JfrFlightEvents").getDeclaredConstructor().newInstance();
+        } catch (Throwable e) {
+            // Java 8, or a runtime without the jdk.jfr module
+            return new Disabled();
+        }
+    }
+
+    static Object beginAppend() {
+        return INSTANCE.startAppend();
+    }
+
+    static void commitAppend(Object event, String level, String logger, String outcome) {
+        INSTANCE.endAppend(event, level, logger, outcome);
+    }
+
+    static Object beginBuild() {
+        return INSTANCE.startBuild();
+    }
+
+    static void commitBuild(Object event, Notification notification, boolean streaming, int payloadSize) {
+        INSTANCE.endBuild(event, notification, streaming, payloadSize);
+    }
+
+    static Object beginHttp() {
+        return INSTANCE.startHttp();
+    }
+
+    static void commitHttp(Object event, HttpRequest request) {
+        INSTANCE.endHttp(event, request);
+    }
+
+    // the event being timed, null when it's disabled
+    abstract Object startAppend();
+
+    abstract void endAppend(Object event, String level, String logger, String outcome);
+
+    abstract Object startBuild();
+
+    abstract void endBuild(Object event, Notification notification, boolean streaming, int payloadSize);
+
+    abstract Object startHttp();
+
+    abstract void endHttp(Object event, HttpRequest request);
+
+    // frames of the whole cause chain, as they end up in the payload
+    static int countFrames(Throwable throwable) {
+        int frames = 0;
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            frames += current.getStackTrace().length;
+        }
+        return frames;
+    }
+
+    private static class Disabled extends FlightEvents {
+
+        @Override
+        Object startAppend() {
+            return null;
+        }
+
+        @Override
+        void endAppend(Object event, String level, String logger, String outcome) {
+        }
+
+        @Override
+        Object startBuild() {
+            return null;
+        }
+
+        @Override
+        void endBuild(Object event, Notification notification, boolean streaming, int payloadSize) {
+        }
+
+        @Override
+        Object startHttp() {
+            return null;
+        }
+
+        @Override
+        void endHttp(Object event, HttpRequest request) {
+        }
+    }
+
+}
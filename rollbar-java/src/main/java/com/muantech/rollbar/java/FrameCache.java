@@ -0,0 +1,65 @@
+package com.muantech.rollbar.java;
+
+/**
+ * Bounded cache of encoded stack frames. The same frames show up in almost every trace of a long-running service,
+ * so each one is encoded to JSON and formatted for the raw trace only the first time it's seen.
+ *
+ * It's direct-mapped on the element hash: a colliding frame simply replaces the previous one. Entries are
+ * immutable, so it can be read and written without locking.
+ */
+public class FrameCache {
+
+    private final Frame[] frames;
+    private final int mask;
+
+    public FrameCache(int size) {
+        int capacity = Integer.highestOneBit(Math.max(1, size));
+        this.frames = new Frame[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public Frame get(StackTraceElement element) {
+        int hash = element.hashCode();
+        int index = (hash ^ (hash >>> 16)) & mask;
+
+        Frame frame = frames[index];
+        if (frame != null && frame.element.equals(element)) return frame;
+
+        frame = new Frame(element);
+        frames[index] = frame;
+        return frame;
+    }
+
+    public static class Frame {
+
+        private final StackTraceElement element;
+        private final byte[] json;
+        private final String line;
+
+        Frame(StackTraceElement element) {
+            this.element = element;
+
+            JsonWriter out = new JsonWriter(128);
+            out.beginObject();
+            out.field("class_name", element.getClassName());
+            out.field("filename", element.getFileName());
+            out.field("method", element.getMethodName());
+            if (element.getLineNumber() > 0) {
+                out.field("lineno", element.getLineNumber());
+            }
+            this.json = out.endObject().toByteArray();
+
+            this.line = element.toString();
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        // the element as printStackTrace prints it, without the leading "at "
+        public String getLine() {
+            return line;
+        }
+    }
+
+}
@@ -0,0 +1,257 @@
+package com.muantech.rollbar.java;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+public class HttpRequest {
+
+    public static final int DEFAULT_TIMEOUT = 5000;
+
+    private final URL url;
+
+    private volatile HttpURLConnection connection;
+    private final HashMap<String, String> requestProperties;
+
+    private String method;
+    private byte[] body;
+    private boolean gzipped;
+
+    private int gzipThreshold = -1;
+    private int timeout = DEFAULT_TIMEOUT;
+
+    private int attemptNumber;
+
+    private volatile Outcome outcome;
+    private volatile int responseCode;
+    private volatile long retryAfter;
+    private volatile long latency;
+
+    public HttpRequest(URL url, String method) {
+        this.url = url;
+        this.method = method;
+
+        this.requestProperties = new HashMap<String, String>();
+
+        attemptNumber = 0;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public void setRequestProperty(String key, String value) {
+        requestProperties.put(key, value);
+    }
+
+    public void setBody(String body) {
+        this.body = toBytes(body);
+    }
+
+    public void setBody(byte[] body) {
+        this.body = body;
+        this.gzipped = false;
+    }
+
+    // bodies of at least this many bytes are sent gzip-compressed, a negative value disables compression
+    public void setGzipThreshold(int gzipThreshold) {
+        this.gzipThreshold = gzipThreshold;
+    }
+
+    static byte[] toBytes(String body) {
+        try {
+            return body.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return body.getBytes();
+        }
+    }
+
+    // connect and read timeout in milliseconds
+    public void setTimeout(int timeout) {
+        if (timeout > 0) this.timeout = timeout;
+    }
+
+    // Called from another thread to give up on a request that is past its deadline
+    public void abort() {
+        HttpURLConnection connection = this.connection;
+        if (connection != null) connection.disconnect();
+    }
+
+    // true when the endpoint accepted the request, getOutcome() tells whether it's worth sending it again
+    public boolean execute() {
+
+        attemptNumber++;
+        responseCode = 0;
+        retryAfter = 0;
+
+        Object event = FlightEvents.beginHttp();
+        long start = System.nanoTime();
+        try {
+            return attempt();
+        } finally {
+            latency = System.nanoTime() - start;
+            if (event != null) FlightEvents.commitHttp(event, this);
+        }
+    }
+
+    private boolean attempt() {
+
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+        } catch (IOException e) {
+            outcome = Outcome.TRANSIENT;
+            return false;
+        }
+
+        try {
+            connection.setRequestMethod(this.method);
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+
+            for (Entry<String, String> pair : requestProperties.entrySet()) {
+                connection.setRequestProperty(pair.getKey(), pair.getValue());
+            }
+
+            if (body != null) {
+                compressBodyIfNeeded();
+                if (gzipped) connection.setRequestProperty("Content-Encoding", "gzip");
+
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                writeBody(body, connection);
+            }
+
+            int responseCode = connection.getResponseCode();
+            this.responseCode = responseCode;
+            this.outcome = Outcome.classify(responseCode);
+            if (outcome == Outcome.THROTTLED) retryAfter = parseRetryAfter(connection.getHeaderField("Retry-After"));
+
+            // the JDK only hands the socket back to its keep-alive cache once the response has been read to the end
+            consumeResponse(responseCode);
+
+        } catch (IOException e) {
+            // the connection state is unknown, don't let it be reused
+            connection.disconnect();
+            outcome = Outcome.TRANSIENT;
+            return false;
+        }
+
+        return outcome == Outcome.SUCCESS;
+    }
+
+    // Milliseconds from now, the header holds either seconds or an HTTP date
+    static long parseRetryAfter(String value) {
+        if (value == null || value.trim().isEmpty()) return 0;
+        value = value.trim();
+
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // not seconds
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        try {
+            return Math.max(0, format.parse(value).getTime() - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    // The body as it goes on the wire, gzip-compressed past the threshold
+    byte[] getWireBody() throws IOException {
+        compressBodyIfNeeded();
+        return body;
+    }
+
+    // Handed to a local relay instead of the endpoint, which is as far as this process can tell it succeeded
+    void relayed(long latency) {
+        attemptNumber++;
+        responseCode = 0;
+        retryAfter = 0;
+        outcome = Outcome.SUCCESS;
+        this.latency = latency;
+    }
+
+    // Compressed once, retries send the same bytes
+    private void compressBodyIfNeeded() throws IOException {
+        if (gzipped || gzipThreshold < 0 || body.length < gzipThreshold) return;
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        GZIPOutputStream out = new GZIPOutputStream(compressed);
+        try {
+            out.write(body);
+        } finally {
+            out.close();
+        }
+
+        body = compressed.toByteArray();
+        gzipped = true;
+    }
+
+    private void consumeResponse(int responseCode) throws IOException {
+        InputStream in = responseCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in == null) return;
+
+        try {
+            byte[] buffer = new byte[512];
+            while (in.read(buffer) != -1) {
+                // discard
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private void writeBody(byte[] body, HttpURLConnection connection) throws IOException {
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(connection.getOutputStream());
+            out.write(this.body);
+        } finally {
+            if (out != null) out.close();
+        }
+
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    public int getAttemptNumber() {
+        return attemptNumber;
+    }
+
+    // outcome of the last attempt, null before the first one
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    // status of the last response, 0 if there was none
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    // nanoseconds taken by the last attempt
+    public long getLatency() {
+        return latency;
+    }
+
+    // milliseconds the endpoint asked to wait with the last response, 0 if it didn't
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+}
@@ -0,0 +1,300 @@
+package com.muantech.rollbar.java;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes JSON straight into a reusable UTF-8 byte buffer.
+ *
+ * Strings are escaped the way org.json quotes them so the output matches the one of the JSONObject tree. The
+ * writer is not thread-safe, each thread building payloads keeps its own and {@link #reset()}s it per payload.
+ */
+public class JsonWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+
+    private static final int MAX_DEPTH = 64;
+
+    // a buffer grown above this size by a huge payload is not kept for the next one
+    private static final int MAX_RETAINED = 1024 * 1024;
+
+    private final int initialCapacity;
+    private byte[] buffer;
+    private int size;
+
+    // per nesting level: nothing written yet, and where an optional object started
+    private final boolean[] first = new boolean[MAX_DEPTH];
+    private final int[] marks = new int[MAX_DEPTH];
+    private final boolean[] markFirst = new boolean[MAX_DEPTH];
+    private int depth;
+
+    private boolean afterName;
+
+    public JsonWriter(int initialCapacity) {
+        this.initialCapacity = Math.max(16, initialCapacity);
+        this.buffer = new byte[this.initialCapacity];
+        reset();
+    }
+
+    public JsonWriter reset() {
+        if (buffer.length > MAX_RETAINED) buffer = new byte[initialCapacity];
+        size = 0;
+        depth = 0;
+        first[0] = true;
+        afterName = false;
+        return this;
+    }
+
+    public JsonWriter beginObject() {
+        beforeValue();
+        write((byte) '{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        depth--;
+        write((byte) '}');
+        return this;
+    }
+
+    // Starts a named object that endOptionalObject() drops again if nothing was written into it
+    public JsonWriter beginOptionalObject(String name) {
+        marks[depth] = size;
+        markFirst[depth] = first[depth];
+        name(name);
+        return beginObject();
+    }
+
+    public JsonWriter endOptionalObject() {
+        if (!first[depth]) return endObject();
+
+        depth--;
+        size = marks[depth];
+        first[depth] = markFirst[depth];
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        beforeValue();
+        write((byte) '[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        depth--;
+        write((byte) ']');
+        return this;
+    }
+
+    public JsonWriter name(String name) {
+        comma();
+        string(name);
+        write((byte) ':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        if (value == null) return nullValue();
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        beforeValue();
+        if (value == Long.MIN_VALUE) {
+            write(Long.toString(value).getBytes());
+            return this;
+        }
+        if (value < 0) {
+            write((byte) '-');
+            value = -value;
+        }
+        int start = size;
+        do {
+            write((byte) ('0' + (value % 10)));
+            value /= 10;
+        } while (value > 0);
+        reverse(start, size - 1);
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        write(value ? TRUE : FALSE);
+        return this;
+    }
+
+    public JsonWriter nullValue() {
+        beforeValue();
+        write(NULL);
+        return this;
+    }
+
+    // Writes an already encoded JSON value as it is
+    public JsonWriter rawValue(byte[] json) {
+        beforeValue();
+        write(json);
+        return this;
+    }
+
+    // Writes already encoded name/value pairs, without the braces, into the current object
+    public JsonWriter rawFields(byte[] fields) {
+        if (fields.length == 0) return this;
+        comma();
+        write(fields);
+        return this;
+    }
+
+    // name and value, or nothing at all if the value is null, like JSONObject.put does
+    public JsonWriter field(String name, String value) {
+        if (value != null) name(name).value(value);
+        return this;
+    }
+
+    public JsonWriter field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private void push() {
+        if (++depth >= MAX_DEPTH) throw new IllegalStateException("JSON nested too deep");
+        first[depth] = true;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+        } else {
+            comma();
+        }
+    }
+
+    private void comma() {
+        if (first[depth]) {
+            first[depth] = false;
+        } else {
+            write((byte) ',');
+        }
+    }
+
+    // Same escaping as JSONObject.quote
+    private void string(String value) {
+        ensureCapacity(value.length() + 2);
+        write((byte) '"');
+
+        char previous = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '\\':
+            case '"':
+                write((byte) '\\');
+                write((byte) c);
+                break;
+            case '/':
+                if (previous == '<') write((byte) '\\');
+                write((byte) c);
+                break;
+            case '\b':
+                escape('b');
+                break;
+            case '\t':
+                escape('t');
+                break;
+            case '\n':
+                escape('n');
+                break;
+            case '\f':
+                escape('f');
+                break;
+            case '\r':
+                escape('r');
+                break;
+            default:
+                if (c < ' ' || (c >= 0x80 && c < 0xa0) || (c >= 0x2000 && c < 0x2100)) {
+                    unicodeEscape(c);
+                } else if (c < 0x80) {
+                    write((byte) c);
+                } else if (c < 0x800) {
+                    write((byte) (0xc0 | (c >> 6)));
+                    write((byte) (0x80 | (c & 0x3f)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    write((byte) (0xf0 | (codePoint >> 18)));
+                    write((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                    write((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                    write((byte) (0x80 | (codePoint & 0x3f)));
+                } else if (Character.isSurrogate(c)) {
+                    // unpaired surrogate, same replacement as String.getBytes
+                    write((byte) '?');
+                } else {
+                    write((byte) (0xe0 | (c >> 12)));
+                    write((byte) (0x80 | ((c >> 6) & 0x3f)));
+                    write((byte) (0x80 | (c & 0x3f)));
+                }
+            }
+            previous = c;
+        }
+
+        write((byte) '"');
+    }
+
+    private void escape(char c) {
+        write((byte) '\\');
+        write((byte) c);
+    }
+
+    private void unicodeEscape(char c) {
+        write((byte) '\\');
+        write((byte) 'u');
+        write(HEX[(c >> 12) & 0xf]);
+        write(HEX[(c >> 8) & 0xf]);
+        write(HEX[(c >> 4) & 0xf]);
+        write(HEX[c & 0xf]);
+    }
+
+    private void reverse(int from, int to) {
+        while (from < to) {
+            byte tmp = buffer[from];
+            buffer[from++] = buffer[to];
+            buffer[to--] = tmp;
+        }
+    }
+
+    private void write(byte b) {
+        if (size == buffer.length) ensureCapacity(1);
+        buffer[size++] = b;
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra <= buffer.length) return;
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + extra));
+    }
+
+}
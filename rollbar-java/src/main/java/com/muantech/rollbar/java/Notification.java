@@ -0,0 +1,61 @@
+package com.muantech.rollbar.java;
+
+import com.muantech.rollbar.java.RollbarNotifier.Level;
+
+public class Notification {
+
+    private final Level level;
+    private final String message;
+    private final Throwable throwable;
+    private final NotificationContext context;
+    private final byte[] payload;
+
+    private final long enqueueTime;
+
+    public Notification(Level level, String message, Throwable throwable, NotificationContext context) {
+        this.level = level;
+        this.message = message;
+        this.throwable = throwable;
+        this.context = context;
+        this.payload = null;
+
+        this.enqueueTime = System.nanoTime();
+    }
+
+    // An item serialized already, i.e. by the notifier of another process
+    Notification(Level level, byte[] payload) {
+        this.level = level;
+        this.message = null;
+        this.throwable = null;
+        this.context = null;
+        this.payload = payload;
+
+        this.enqueueTime = System.nanoTime();
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    public NotificationContext getContext() {
+        return context;
+    }
+
+    // null unless the item came serialized
+    byte[] getPayload() {
+        return payload;
+    }
+
+    public long getEnqueueTime() {
+        return enqueueTime;
+    }
+
+}
@@ -0,0 +1,531 @@
+package com.muantech.rollbar.java;
+
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * What a notification carries besides its message and throwable: request, person and client details, custom data
+ * and the log lines. Each part has its own field, so the builder reads them without key lookups or instanceof
+ * checks.
+ *
+ * Instances come from {@link #obtain()} and belong to the notifier once they are passed to notify, it recycles
+ * them after the item is serialized. The pool is a fixed array of slots claimed with a compare-and-set, so taking
+ * and returning a context allocates nothing, and a context that doesn't find a free slot is left to the GC.
+ */
+public class NotificationContext {
+
+    private static final int POOL_SIZE = 256;
+    private static final int INITIAL_CUSTOM_FIELDS = 8;
+
+    private static final AtomicReferenceArray<NotificationContext> POOL = new AtomicReferenceArray<NotificationContext>(POOL_SIZE);
+
+    private static final byte STRING = 0;
+    private static final byte STRINGS = 1;
+    private static final byte LONG = 2;
+    private static final byte BOOLEAN = 3;
+
+    private String platform;
+    private String framework;
+
+    // request
+    private String url;
+    private String method;
+    private final Map<String, String> headers = new LinkedHashMap<String, String>();
+    private final Map<String, String> params = new LinkedHashMap<String, String>();
+    private String headersJson;
+    private String paramsJson;
+    private String query;
+    private String userIp;
+    private String sessionId;
+    private String protocol;
+    private String requestId;
+
+    // person
+    private String userId;
+    private String username;
+    private String email;
+
+    // client
+    private String userAgent;
+
+    // custom data, in insertion order, numbers and flags kept unboxed
+    private String[] names = new String[INITIAL_CUSTOM_FIELDS];
+    private byte[] types = new byte[INITIAL_CUSTOM_FIELDS];
+    private Object[] objects = new Object[INITIAL_CUSTOM_FIELDS];
+    private long[] longs = new long[INITIAL_CUSTOM_FIELDS];
+    private int customSize;
+
+    private List<String> logs;
+
+    // set by the one recycle call that gives it back, the others see it taken
+    private final AtomicBoolean pooled = new AtomicBoolean();
+
+    public NotificationContext() {}
+
+    // A cleared context from the pool, or a new one if the pool is empty
+    public static NotificationContext obtain() {
+        int start = (int) (Thread.currentThread().getId() % POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            int index = (start + i) % POOL_SIZE;
+            NotificationContext context = POOL.get(index);
+            if (context != null && POOL.compareAndSet(index, context, null)) {
+                context.pooled.set(false);
+                return context;
+            }
+        }
+        return new NotificationContext();
+    }
+
+    // Clears the context and gives it back to the pool, it must not be used afterwards
+    public void recycle() {
+        if (!pooled.compareAndSet(false, true)) return;
+        clear();
+
+        int start = (int) (Thread.currentThread().getId() % POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            int index = (start + i) % POOL_SIZE;
+            if (POOL.get(index) == null && POOL.compareAndSet(index, null, this)) return;
+        }
+    }
+
+    /**
+     * The context of the map given to the Map based notify methods. Known keys fill their fields, and every String
+     * value, known or not, is also custom data as it always was. Sessions and requests in the map are read right
+     * away, they are not valid anymore once the item is serialized.
+     */
+    public static NotificationContext fromMap(Map<String, Object> map) {
+        NotificationContext context = obtain();
+        if (map != null) context.putAll(map);
+        return context;
+    }
+
+    // Adds the entries of a context map, as fromMap reads them
+    public NotificationContext putAll(Map<String, ?> map) {
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            putFromMap(entry.getKey(), entry.getValue());
+        }
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void putFromMap(String key, Object value) {
+        if (value == null) return;
+
+        if (value instanceof String) {
+            String string = (String) value;
+            put(key, string);
+            setKnownField(key, string);
+        } else if (value instanceof String[]) {
+            put(key, (String[]) value);
+        } else if (value instanceof Map && ("headers".equals(key) || "params".equals(key))) {
+            Map<String, String> target = "headers".equals(key) ? headers : params;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                target.put(String.valueOf(entry.getKey()), entry.getValue() == null ? null : entry.getValue().toString());
+            }
+        } else if ("logs".equals(key) && value instanceof List) {
+            logs = (List<String>) value;
+        } else if (value instanceof HttpSession) {
+            HttpSession session = (HttpSession) value;
+            Enumeration<String> attributes = session.getAttributeNames();
+            while (attributes.hasMoreElements()) {
+                String name = attributes.nextElement();
+                putAttribute("session." + name, session.getAttribute(name));
+            }
+        } else if (value instanceof HttpServletRequest) {
+            HttpServletRequest request = (HttpServletRequest) value;
+            Enumeration<String> attributes = request.getAttributeNames();
+            while (attributes.hasMoreElements()) {
+                String name = attributes.nextElement();
+                putAttribute("attribute." + name, request.getAttribute(name));
+            }
+            if (userAgent == null) userAgent = request.getHeader("User-Agent");
+        } else {
+            setKnownField(key, value.toString());
+        }
+    }
+
+    private void setKnownField(String key, String value) {
+        if ("platform".equals(key)) platform = value;
+        else if ("framework".equals(key)) framework = value;
+        else if ("url".equals(key)) url = value;
+        else if ("method".equals(key)) method = value;
+        else if ("headers".equals(key)) headersJson = value;
+        else if ("params".equals(key)) paramsJson = value;
+        else if ("query".equals(key)) query = value;
+        else if ("user-ip".equals(key)) userIp = value;
+        else if ("sessionId".equals(key)) sessionId = value;
+        else if ("protocol".equals(key)) protocol = value;
+        else if ("requestId".equals(key)) requestId = value;
+        else if ("user".equals(key)) userId = value;
+        else if ("username".equals(key)) username = value;
+        else if ("email".equals(key)) email = value;
+        else if ("user-agent".equals(key)) userAgent = value;
+    }
+
+    private void putAttribute(String name, Object value) {
+        if (value instanceof String) {
+            put(name, (String) value);
+        } else if (value instanceof String[]) {
+            put(name, (String[]) value);
+        }
+    }
+
+    /**
+     * The same context as a map, for the JSONObject builder.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        for (int i = 0; i < customSize; i++) {
+            map.put(names[i], getCustomValue(i));
+        }
+
+        putIfNotNull(map, "platform", platform);
+        putIfNotNull(map, "framework", framework);
+        putIfNotNull(map, "url", url);
+        putIfNotNull(map, "method", method);
+        putIfNotNull(map, "query", query);
+        putIfNotNull(map, "user-ip", userIp);
+        putIfNotNull(map, "sessionId", sessionId);
+        putIfNotNull(map, "protocol", protocol);
+        putIfNotNull(map, "requestId", requestId);
+        putIfNotNull(map, "user", userId);
+        putIfNotNull(map, "username", username);
+        putIfNotNull(map, "email", email);
+        putIfNotNull(map, "user-agent", userAgent);
+
+        if (!headers.isEmpty()) map.put("headers", new LinkedHashMap<String, String>(headers));
+        else if (headersJson != null) map.put("headers", headersJson);
+        if (!params.isEmpty()) map.put("params", new LinkedHashMap<String, String>(params));
+        else if (paramsJson != null) map.put("params", paramsJson);
+
+        if (logs != null) map.put("logs", logs);
+        return map;
+    }
+
+    private static void putIfNotNull(Map<String, Object> map, String key, String value) {
+        if (value != null) map.put(key, value);
+    }
+
+    // A copy that outlives this context, the logs list is shared
+    public NotificationContext copy() {
+        NotificationContext copy = obtain();
+        copy.platform = platform;
+        copy.framework = framework;
+        copy.url = url;
+        copy.method = method;
+        copy.headers.putAll(headers);
+        copy.params.putAll(params);
+        copy.headersJson = headersJson;
+        copy.paramsJson = paramsJson;
+        copy.query = query;
+        copy.userIp = userIp;
+        copy.sessionId = sessionId;
+        copy.protocol = protocol;
+        copy.requestId = requestId;
+        copy.userId = userId;
+        copy.username = username;
+        copy.email = email;
+        copy.userAgent = userAgent;
+        for (int i = 0; i < customSize; i++) {
+            copy.ensureCustomCapacity();
+            copy.names[i] = names[i];
+            copy.types[i] = types[i];
+            copy.objects[i] = objects[i];
+            copy.longs[i] = longs[i];
+            copy.customSize++;
+        }
+        copy.logs = logs;
+        return copy;
+    }
+
+    public void clear() {
+        platform = null;
+        framework = null;
+        url = null;
+        method = null;
+        headers.clear();
+        params.clear();
+        headersJson = null;
+        paramsJson = null;
+        query = null;
+        userIp = null;
+        sessionId = null;
+        protocol = null;
+        requestId = null;
+        userId = null;
+        username = null;
+        email = null;
+        userAgent = null;
+        Arrays.fill(names, 0, customSize, null);
+        Arrays.fill(objects, 0, customSize, null);
+        customSize = 0;
+        logs = null;
+    }
+
+    public NotificationContext put(String name, String value) {
+        if (value != null) set(name, STRING, value, 0);
+        return this;
+    }
+
+    public NotificationContext put(String name, String[] values) {
+        if (values != null) set(name, STRINGS, values, 0);
+        return this;
+    }
+
+    public NotificationContext put(String name, long value) {
+        return set(name, LONG, null, value);
+    }
+
+    public NotificationContext put(String name, boolean value) {
+        return set(name, BOOLEAN, null, value ? 1 : 0);
+    }
+
+    // a name put twice keeps its position and takes the new value
+    private NotificationContext set(String name, byte type, Object object, long number) {
+        int index = indexOf(name);
+        if (index < 0) {
+            ensureCustomCapacity();
+            index = customSize++;
+            names[index] = name;
+        }
+        types[index] = type;
+        objects[index] = object;
+        longs[index] = number;
+        return this;
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < customSize; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    private void ensureCustomCapacity() {
+        if (customSize < names.length) return;
+        int capacity = names.length << 1;
+        names = Arrays.copyOf(names, capacity);
+        types = Arrays.copyOf(types, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+        longs = Arrays.copyOf(longs, capacity);
+    }
+
+    public boolean containsCustom(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    int getCustomSize() {
+        return customSize;
+    }
+
+    String getCustomName(int index) {
+        return names[index];
+    }
+
+    // Writes one custom value with its own JSON type
+    void writeCustomValue(JsonWriter out, int index) {
+        out.name(names[index]);
+        switch (types[index]) {
+        case STRINGS:
+            out.beginArray();
+            for (String item : (String[]) objects[index]) {
+                out.value(item);
+            }
+            out.endArray();
+            break;
+        case LONG:
+            out.value(longs[index]);
+            break;
+        case BOOLEAN:
+            out.value(longs[index] != 0);
+            break;
+        default:
+            out.value((String) objects[index]);
+        }
+    }
+
+    Object getCustomValue(int index) {
+        switch (types[index]) {
+        case LONG:
+            return longs[index];
+        case BOOLEAN:
+            return longs[index] != 0;
+        default:
+            return objects[index];
+        }
+    }
+
+    public String getPlatform() {
+        return platform;
+    }
+
+    public NotificationContext setPlatform(String platform) {
+        this.platform = platform;
+        return this;
+    }
+
+    public String getFramework() {
+        return framework;
+    }
+
+    public NotificationContext setFramework(String framework) {
+        this.framework = framework;
+        return this;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public NotificationContext setUrl(String url) {
+        this.url = url;
+        return this;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public NotificationContext setMethod(String method) {
+        this.method = method;
+        return this;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public NotificationContext putHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    // the headers as the JSON text of an object, used when no header was put one by one
+    public String getHeadersJson() {
+        return headersJson;
+    }
+
+    public NotificationContext setHeadersJson(String headersJson) {
+        this.headersJson = headersJson;
+        return this;
+    }
+
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    public NotificationContext putParam(String name, String value) {
+        params.put(name, value);
+        return this;
+    }
+
+    // the parameters as the JSON text of an object, used when no parameter was put one by one
+    public String getParamsJson() {
+        return paramsJson;
+    }
+
+    public NotificationContext setParamsJson(String paramsJson) {
+        this.paramsJson = paramsJson;
+        return this;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public NotificationContext setQuery(String query) {
+        this.query = query;
+        return this;
+    }
+
+    public String getUserIp() {
+        return userIp;
+    }
+
+    public NotificationContext setUserIp(String userIp) {
+        this.userIp = userIp;
+        return this;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public NotificationContext setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+        return this;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public NotificationContext setProtocol(String protocol) {
+        this.protocol = protocol;
+        return this;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public NotificationContext setRequestId(String requestId) {
+        this.requestId = requestId;
+        return this;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public NotificationContext setUserId(String userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public NotificationContext setUsername(String username) {
+        this.username = username;
+        return this;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public NotificationContext setEmail(String email) {
+        this.email = email;
+        return this;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public NotificationContext setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+        return this;
+    }
+
+    public List<String> getLogs() {
+        return logs;
+    }
+
+    public NotificationContext setLogs(List<String> logs) {
+        this.logs = logs;
+        return this;
+    }
+
+}
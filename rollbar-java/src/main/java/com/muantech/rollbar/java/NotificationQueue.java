@@ -0,0 +1,224 @@
+package com.muantech.rollbar.java;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free queue between the notifying threads and the sender thread.
+ *
+ * Slots carry a sequence number so producers and the consumer only contend on
+ * a CAS of the tail and head counters. When the queue is full the configured
+ * {@link OverflowPolicy} decides what is lost, and every loss is counted.
+ */
+public class NotificationQueue {
+
+    private static final long MAX_PRODUCER_PARK = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int capacity;
+    private final int mask;
+
+    private final AtomicReferenceArray<Notification> elements;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    private final OverflowPolicy policy;
+    private final long blockTimeout;
+
+    private final AtomicLongArray dropped = new AtomicLongArray(OverflowPolicy.values().length);
+
+    private volatile Thread waitingConsumer;
+
+    public NotificationQueue(int capacity, OverflowPolicy policy, long blockTimeout, TimeUnit unit) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+
+        this.capacity = roundToPowerOfTwo(capacity);
+        this.mask = this.capacity - 1;
+
+        this.elements = new AtomicReferenceArray<Notification>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+
+        this.policy = policy;
+        this.blockTimeout = unit.toNanos(blockTimeout);
+    }
+
+    public boolean offer(Notification notification) {
+        if (tryOffer(notification)) return signalled();
+
+        switch (policy) {
+        case DROP_OLDEST:
+            // the evicted notification is lost, the offered one always gets in unless we keep losing the race
+            for (int i = 0; i < capacity; i++) {
+                if (poll() != null) dropped.incrementAndGet(OverflowPolicy.DROP_OLDEST.ordinal());
+                if (tryOffer(notification)) return signalled();
+            }
+            break;
+
+        case DROP_LOWEST_LEVEL:
+            if (replaceLowerLevel(notification)) return signalled();
+            if (tryOffer(notification)) return signalled();
+            break;
+
+        case BLOCK:
+            long deadline = System.nanoTime() + blockTimeout;
+            long park = 1000;
+            while (System.nanoTime() < deadline) {
+                LockSupport.parkNanos(this, park);
+                if (tryOffer(notification)) return signalled();
+                park = Math.min(park << 1, MAX_PRODUCER_PARK);
+            }
+            break;
+
+        default:
+            break;
+        }
+
+        dropped.incrementAndGet(policy.ordinal());
+        return false;
+    }
+
+    public Notification poll() {
+        long pos = head.get();
+        int index;
+        while (true) {
+            index = (int) (pos & mask);
+            long difference = sequences.get(index) - (pos + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(pos, pos + 1)) break;
+                pos = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+
+        Notification notification = elements.getAndSet(index, null);
+        sequences.set(index, pos + capacity);
+        return notification;
+    }
+
+    // only one thread may wait at a time, the sender thread
+    public Notification poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Notification notification = poll();
+        if (notification != null || timeout <= 0) return notification;
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waitingConsumer = Thread.currentThread();
+        try {
+            while ((notification = poll()) == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        } finally {
+            waitingConsumer = null;
+        }
+        return notification;
+    }
+
+    public int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) return 0;
+        return (int) Math.min(size, capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getDroppedCount() {
+        long total = 0;
+        for (int i = 0; i < dropped.length(); i++) {
+            total += dropped.get(i);
+        }
+        return total;
+    }
+
+    public long getDroppedCount(OverflowPolicy reason) {
+        return dropped.get(reason.ordinal());
+    }
+
+    boolean tryOffer(Notification notification) {
+        long pos = tail.get();
+        int index;
+        while (true) {
+            index = (int) (pos & mask);
+            long difference = sequences.get(index) - pos;
+            if (difference == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) break;
+                pos = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+
+        elements.set(index, notification);
+        sequences.set(index, pos + 1);
+        return true;
+    }
+
+    // Takes out the oldest notification to make room for one of a higher level
+    boolean evict() {
+        if (poll() == null) return false;
+        dropped.incrementAndGet(OverflowPolicy.DROP_LOWEST_LEVEL.ordinal());
+        return true;
+    }
+
+    void countDropped(OverflowPolicy reason) {
+        dropped.incrementAndGet(reason.ordinal());
+    }
+
+    // Swaps the offered notification into the slot of the lowest level queued notification, if that level is
+    // lower. The CAS fails if the sender took the victim meanwhile, in which case we look again.
+    private boolean replaceLowerLevel(Notification notification) {
+        int level = notification.getLevel().ordinal();
+        while (true) {
+            int victimIndex = -1;
+            Notification victim = null;
+            for (int i = 0; i < capacity; i++) {
+                Notification candidate = elements.get(i);
+                if (candidate == null || candidate.getLevel().ordinal() >= level) continue;
+                if (victim == null || candidate.getLevel().ordinal() < victim.getLevel().ordinal()) {
+                    victim = candidate;
+                    victimIndex = i;
+                }
+            }
+
+            if (victim == null) return false;
+            if (elements.compareAndSet(victimIndex, victim, notification)) {
+                dropped.incrementAndGet(OverflowPolicy.DROP_LOWEST_LEVEL.ordinal());
+                return true;
+            }
+        }
+    }
+
+    private boolean signalled() {
+        Thread consumer = waitingConsumer;
+        if (consumer != null) LockSupport.unpark(consumer);
+        return true;
+    }
+
+    // at least two slots: with one, the sequence of a filled slot would equal the next tail and read as free
+    private static int roundToPowerOfTwo(int value) {
+        if (value <= 2) return 2;
+        if (value > (1 << 30)) return 1 << 30;
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+}
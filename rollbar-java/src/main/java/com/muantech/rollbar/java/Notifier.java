@@ -0,0 +1,836 @@
+package com.muantech.rollbar.java;
+
+import org.apache.logging.log4j.status.StatusLogger;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.ObjectName;
+
+import com.muantech.rollbar.java.RollbarNotifier.Level;
+
+/**
+ * Sends notifications to one Rollbar project with one configuration. Every notifier has its own queue, retries,
+ * circuit breaker, spool and stats, and a sender thread, while the transports and the scheduler are shared by all
+ * the notifiers of the JVM (see {@link SharedResources}), so an application can report to several projects without
+ * paying for several connection pools.
+ *
+ * The notifier starts when created and stops with {@link #close(long, TimeUnit)}, or from the shutdown hook common
+ * to all of them.
+ */
+public class Notifier {
+
+    private static final long SENDER_POLL_TIMEOUT = 1000;
+    private static final long SPOOL_POLL_TIMEOUT = 100;
+    private static final long BREAKER_POLL_TIMEOUT = 100;
+    private static final long FLUSH_POLL_TIMEOUT = 5;
+    private static final int JSON_WRITER_CAPACITY = 16 * 1024;
+    private static final String MBEAN_NAME = "com.muantech.rollbar:type=Notifier";
+
+    // notifiers not closed yet, the shutdown hook closes those with a shutdown timeout
+    private static final List<Notifier> OPEN = new CopyOnWriteArrayList<Notifier>();
+    private static Thread SHUTDOWN_HOOK;
+
+
+    private final String name;
+    private final NotifyBuilder builder;
+    private final URL url;
+    private URL batchUrl;
+    private final int gzipThreshold;
+    private final int requestTimeout;
+    private final long shutdownTimeout;
+    private final Transport transport;
+    private final PriorityLanes queue;
+    private final ArrayBlockingQueue<HttpRequest> retries;
+    private final int retryInterval;
+    private final RetryPolicy retryPolicy;
+    private CircuitBreaker breaker;
+    private final List<CircuitBreaker.Listener> circuitListeners;
+    private final Thread sender;
+    private Spool spool;
+    private Thread spoolReader;
+    private final ScheduledFuture<?> statsTick;
+    private String mbeanName;
+
+    // flushes asked for and the last one the sender got to, with nothing left in the lanes and the batch
+    private final AtomicLong flushRequests = new AtomicLong();
+    private volatile long flushed;
+
+    // requests handed to the transport and not completed yet
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // retries waiting for their delay, a close sends them right away
+    private final Set<HttpRequest> scheduledRetries = Collections.newSetFromMap(new ConcurrentHashMap<HttpRequest, Boolean>());
+    private volatile boolean closing;
+    private volatile boolean closed;
+
+    private final AtomicLong droppedRetries = new AtomicLong();
+    private final NotifierStats stats;
+
+    public Notifier(String urlString, String apiKey, String env) throws JSONException, UnknownHostException {
+        this(null, urlString, apiKey, env, new NotifierConfig());
+    }
+
+    // name tells the notifier apart in the MBean and the thread names, it can be null
+    public Notifier(String name, String urlString, String apiKey, String env, NotifierConfig config) throws JSONException,
+            UnknownHostException {
+        this(name, urlString, apiKey, env, config, new CopyOnWriteArrayList<CircuitBreaker.Listener>());
+    }
+
+    Notifier(String name, String urlString, String apiKey, String env, NotifierConfig config,
+            List<CircuitBreaker.Listener> circuitListeners) throws JSONException, UnknownHostException {
+        this.name = name;
+        this.url = getURL(urlString);
+        this.builder = new NotifyBuilder(apiKey, env, config.getRawTraceLength());
+        this.gzipThreshold = config.getGzipThreshold();
+        this.requestTimeout = config.getRequestTimeout();
+        this.shutdownTimeout = config.getShutdownTimeout();
+        this.circuitListeners = circuitListeners;
+        this.stats = new NotifierStats(this);
+
+        Batcher batcher = null;
+        // the relay batches the items of the whole host
+        if (config.isBatching() && !config.isRelaying()) {
+            batchUrl = getURL(config.getBatchUrl());
+            batcher = new Batcher(config.getBatchSize(), config.getBatchBytes(), config.getBatchLinger(), TimeUnit.MILLISECONDS);
+        }
+
+        transport = acquireTransport(config);
+
+        if (config.isSpooling()) {
+            spool = openSpool(config);
+        }
+
+        queue = new PriorityLanes(PriorityLanes.parseLevelInts(config.getLaneCapacities()),
+                PriorityLanes.parseLevelPolicies(config.getLanePolicies()), PriorityLanes.parseLevelInts(config.getLaneWeights()),
+                config.getQueueCapacity(), config.getOverflowPolicy(), config.getBlockTimeout(), TimeUnit.MILLISECONDS);
+
+        retryPolicy = new RetryPolicy(config.getMaxRetries(), config.getRetryBaseDelay(), config.getRetryMaxDelay(),
+                config.getRetryBudget());
+
+        if (config.getBreakerFailureRate() > 0) {
+            breaker = new CircuitBreaker(config.getBreakerFailureRate(), config.getBreakerSlowCall(), config.getBreakerOpenTime(),
+                    config.getBreakerWindow(), TimeUnit.MILLISECONDS, circuitListeners);
+        }
+
+        // retries wait in a lane of their own, served once per this many fresh notifications while there are some
+        retries = new ArrayBlockingQueue<HttpRequest>(config.getRetryCapacity());
+        retryInterval = Math.max(1, queue.getTotalWeight() / config.getRetryWeight());
+
+        if (spool != null) {
+            // the sender only writes to the spool, batches are made when reading it back
+            spoolReader = SharedResources.THREAD_FACTORY.newThread(new SpoolReader(spool, batcher == null ? 1 : config.getBatchSize(),
+                    config.getSpoolReplayRate()));
+            spoolReader.setName(threadName("spool"));
+            spoolReader.start();
+            batcher = null;
+        }
+
+        JsonWriter writer = config.isStreamingJson() ? new JsonWriter(JSON_WRITER_CAPACITY) : null;
+        sender = SharedResources.THREAD_FACTORY.newThread(new Sender(batcher, writer));
+        sender.setName(threadName("sender"));
+        sender.start();
+
+        statsTick = SharedResources.EXECUTOR.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                stats.tick();
+            }
+        }, NotifierStats.TICK_INTERVAL, NotifierStats.TICK_INTERVAL, TimeUnit.SECONDS);
+
+        if (config.isJmx()) registerMBean();
+
+        open(this);
+    }
+
+    private static Transport acquireTransport(NotifierConfig config) {
+        if (config.isRelaying()) {
+            try {
+                return SharedResources.acquireRelayTransport(config.getRelayAddress());
+            } catch (IOException e) {
+                StatusLogger.getLogger().error("Error opening the socket to the relay at " + config.getRelayAddress()
+                        + ", items will be sent to the endpoint", e);
+            }
+        }
+        return SharedResources.acquireTransport(config.getMaxInFlight(), config.getRequestTimeout());
+    }
+
+    private String threadName(String role) {
+        return "RollbarNotifier-" + role + (name == null ? "" : "-" + name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private static synchronized void open(Notifier notifier) {
+        OPEN.add(notifier);
+        if (notifier.shutdownTimeout > 0 && SHUTDOWN_HOOK == null) {
+            SHUTDOWN_HOOK = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    closeAll();
+                }
+            }, "RollbarNotifier-shutdown");
+            Runtime.getRuntime().addShutdownHook(SHUTDOWN_HOOK);
+        }
+    }
+
+    // the hook goes away with the last notifier, so that a redeployed webapp leaves nothing behind
+    private static synchronized void forget(Notifier notifier) {
+        OPEN.remove(notifier);
+        if (!OPEN.isEmpty() || SHUTDOWN_HOOK == null || Thread.currentThread() == SHUTDOWN_HOOK) return;
+        try {
+            Runtime.getRuntime().removeShutdownHook(SHUTDOWN_HOOK);
+        } catch (IllegalStateException e) {
+            // the JVM is already shutting down
+        }
+        SHUTDOWN_HOOK = null;
+    }
+
+    // Closes the notifiers together, each within its own shutdown timeout counted from now
+    private static void closeAll() {
+        long start = System.nanoTime();
+        List<Notifier> closing = new ArrayList<Notifier>();
+        for (Notifier notifier : OPEN) {
+            if (notifier.shutdownTimeout <= 0) continue;
+            notifier.beginClose();
+            closing.add(notifier);
+        }
+        for (Notifier notifier : closing) {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            notifier.close(Math.max(0, notifier.shutdownTimeout - elapsed), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void registerMBean() {
+        String objectName = name == null ? MBEAN_NAME : MBEAN_NAME + ",name=" + ObjectName.quote(name);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, new ObjectName(objectName));
+            mbeanName = objectName;
+        } catch (InstanceAlreadyExistsException e) {
+            // another notifier with the same name, or another copy of the library in the same JVM, got there first
+            StatusLogger.getLogger().warn("The MBean " + objectName + " is already registered, the stats of this notifier are only available from getStats().");
+        } catch (Exception e) {
+            StatusLogger.getLogger().error("Error registering the MBean " + objectName, e);
+        }
+    }
+
+    private void unregisterMBean() {
+        if (mbeanName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(mbeanName));
+        } catch (Exception e) {
+            StatusLogger.getLogger().error("Error unregistering the MBean " + mbeanName, e);
+        }
+        mbeanName = null;
+    }
+
+    /**
+     * Sends everything notified so far: the lanes are drained without waiting for batches to fill up, and the
+     * requests in flight complete. Retries still waiting for their delay aren't waited for, and with a spool the
+     * items are flushed once they are in it.
+     *
+     * @return false if the timeout expired first
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        if (closed) return true;
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long request = requestFlush();
+        while (true) {
+            if (flushed >= request && pending.get() == 0) {
+                if (retries.isEmpty()) return true;
+                // completions since the sender's turn left retries behind
+                request = requestFlush();
+            }
+            // closed meanwhile, the close reports what was left
+            if (closed || System.nanoTime() >= deadline) return false;
+            try {
+                Thread.sleep(FLUSH_POLL_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private long requestFlush() {
+        long request = flushRequests.incrementAndGet();
+        queue.signal();
+        return request;
+    }
+
+    // From now on failed requests aren't retried, and the retries waiting for their delay are queued right away
+    private void beginClose() {
+        closing = true;
+        for (HttpRequest retry : scheduledRetries) {
+            if (scheduledRetries.remove(retry)) enqueueRetry(retry);
+        }
+        requestFlush();
+    }
+
+    /**
+     * Flushes within the timeout and stops the notifier. While it closes failed requests aren't retried, and
+     * retries waiting for their delay are sent right away, so the last items get a single attempt each. A closed
+     * notifier drops what it's given.
+     *
+     * @return false if some items couldn't be sent in time
+     */
+    public synchronized boolean close(long timeout, TimeUnit unit) {
+        if (closed) return true;
+
+        beginClose();
+        boolean flushed = flush(timeout, unit);
+        if (!flushed) {
+            StatusLogger.getLogger().warn("RollbarNotifier closed with " + (queue.size() + retries.size()) + " items queued and "
+                    + pending.get() + " requests in flight.");
+        }
+
+        closed = true;
+        sender.interrupt();
+        if (spoolReader != null) spoolReader.interrupt();
+        // the spool is only released once nothing writes to it or reads it anymore
+        if (spool != null) {
+            join(sender);
+            join(spoolReader);
+            spool.close();
+        }
+        SharedResources.releaseTransport(transport);
+        statsTick.cancel(false);
+        unregisterMBean();
+        forget(this);
+        return flushed;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void notify(String message) {
+        notify(Level.INFO, message, null, (NotificationContext) null);
+    }
+
+    public void notify(Throwable throwable) {
+        notify(Level.ERROR, null, throwable, (NotificationContext) null);
+    }
+
+    public void notify(String message, Throwable throwable) {
+        notify(Level.ERROR, message, throwable, (NotificationContext) null);
+    }
+
+    public void notify(Level level, String message, Throwable throwable, Map<String, Object> context) {
+        notify(level, message, throwable, NotificationContext.fromMap(context));
+    }
+
+    /**
+     * The context is owned by the notifier from now on, it's recycled once the item is serialized.
+     */
+    public void notify(Level level, String message, Throwable throwable, NotificationContext context) {
+        offer(level, message, throwable, context);
+    }
+
+    // false when the notification was dropped
+    boolean offer(Level level, String message, Throwable throwable, NotificationContext context) {
+        if (closed) {
+            StatusLogger.getLogger().error("RollbarNotifier is closed, dropping the notification.");
+            return false;
+        }
+
+        if (!queue.offer(new Notification(level, message, throwable, context))) return false;
+        stats.onEnqueue();
+        return true;
+    }
+
+    // An item serialized already, it's sent as it is
+    boolean offerPayload(Level level, byte[] payload) {
+        if (closed) {
+            StatusLogger.getLogger().error("RollbarNotifier is closed, dropping the notification.");
+            return false;
+        }
+
+        if (!queue.offer(new Notification(level, payload))) return false;
+        stats.onEnqueue();
+        return true;
+    }
+
+    // Everything the notifier measures, read at once
+    public NotifierStats.Snapshot getStats() {
+        return stats.snapshot();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queue.getCapacity();
+    }
+
+    public int getQueueSize(Level level) {
+        return queue.getLane(level).size();
+    }
+
+    public int getQueueCapacity(Level level) {
+        return queue.getCapacity(level);
+    }
+
+    public long getDroppedCount() {
+        return queue.getDroppedCount();
+    }
+
+    public long getDroppedCount(OverflowPolicy reason) {
+        return queue.getDroppedCount(reason);
+    }
+
+    public long getOutcomeCount(Outcome outcome) {
+        return retryPolicy.getOutcomeCount(outcome);
+    }
+
+    public long getRetryCount() {
+        return retryPolicy.getRetryCount();
+    }
+
+    // retries refused because the live traffic didn't pay for them
+    public long getRetryBudgetExhaustedCount() {
+        return retryPolicy.getBudgetExhaustedCount();
+    }
+
+    // requests dropped after failing every attempt
+    public long getGivenUpCount() {
+        return retryPolicy.getGivenUpCount();
+    }
+
+    // CLOSED when there is no circuit breaker
+    public CircuitBreaker.State getCircuitState() {
+        return breaker == null ? CircuitBreaker.State.CLOSED : breaker.getState();
+    }
+
+    // requests held back while the circuit breaker was open
+    public long getCircuitRejectedCount() {
+        return breaker == null ? 0 : breaker.getRejectedCount();
+    }
+
+    // Told about every state change of the circuit breaker
+    public void addCircuitListener(CircuitBreaker.Listener listener) {
+        circuitListeners.add(listener);
+    }
+
+    public void removeCircuitListener(CircuitBreaker.Listener listener) {
+        circuitListeners.remove(listener);
+    }
+
+    // retries that came due with the retry lane full
+    public long getDroppedRetryCount() {
+        return droppedRetries.get();
+    }
+
+    public long getSpoolEvictedCount() {
+        return spool == null ? 0 : spool.getEvictedCount();
+    }
+
+    // null when the spool can't be opened, i.e. when another notifier, in this process or another, has it
+    private Spool openSpool(NotifierConfig config) {
+        try {
+            return new Spool(new File(config.getSpoolDir()), config.getSpoolSegmentBytes(), config.getSpoolMaxBytes());
+        } catch (IOException e) {
+            StatusLogger.getLogger().error("Error opening the spool at " + config.getSpoolDir() + ", items will only be kept in memory", e);
+            return null;
+        }
+    }
+
+    // the close may run on the thread itself, i.e. from a notifier callback
+    private static void join(Thread thread) {
+        if (thread == null || thread == Thread.currentThread()) return;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(Notification notification, Batcher batcher, JsonWriter writer) {
+        try {
+            stats.onDequeue(notification);
+
+            byte[] body;
+            Object event = FlightEvents.beginBuild();
+            long start = System.nanoTime();
+            try {
+                body = serialize(notification, writer);
+                stats.onBuild(System.nanoTime() - start, body.length);
+                if (event != null) FlightEvents.commitBuild(event, notification, writer != null, body.length);
+            } finally {
+                if (notification.getContext() != null) notification.getContext().recycle();
+            }
+
+            if (spool != null) {
+                if (!spool.append(body)) {
+                    StatusLogger.getLogger().error("The item is larger than a spool segment, dropping it.");
+                }
+                return;
+            }
+
+            if (batcher == null) {
+                postPayload(body);
+                return;
+            }
+
+            if (!batcher.fits(body)) flushBatch(batcher);
+            batcher.add(body);
+        } catch (Throwable e) {
+            stats.onSendError();
+            StatusLogger.getLogger().error("There was an error notifying the error.", e);
+        }
+    }
+
+    // writer is null when the payload is built as a JSONObject tree
+    private byte[] serialize(Notification notification, JsonWriter writer) throws JSONException {
+        if (notification.getPayload() != null) return notification.getPayload();
+
+        String level = notification.getLevel().toString();
+
+        if (writer == null) {
+            JSONObject payload = builder.build(level, notification.getMessage(), notification.getThrowable(), notification.getContext());
+            return HttpRequest.toBytes(payload.toString());
+        }
+
+        builder.write(writer.reset(), level, notification.getMessage(), notification.getThrowable(), notification.getContext());
+        return writer.toByteArray();
+    }
+
+    private void postPayload(byte[] payload) {
+        retryPolicy.onSent(1);
+        transmit(newRequest(url, payload), retryOnFailure);
+    }
+
+    private void flushBatch(Batcher batcher) {
+        List<byte[]> payloads = batcher.drain();
+        if (payloads.isEmpty()) return;
+
+        if (payloads.size() == 1) {
+            postPayload(payloads.get(0));
+            return;
+        }
+
+        try {
+            retryPolicy.onSent(payloads.size());
+            transmit(newRequest(batchUrl, Batcher.toBody(payloads)), new BatchCallback(payloads));
+        } catch (Throwable e) {
+            StatusLogger.getLogger().error("There was an error sending a batch of " + payloads.size() + " items.", e);
+            retryIndividually(payloads);
+        }
+    }
+
+    // the batch failed, every item gets its own retry
+    private void retryIndividually(List<byte[]> payloads) {
+        for (byte[] payload : payloads) {
+            retryRequest(newRequest(url, payload));
+        }
+    }
+
+    // Hands the request to the transport, counted as pending until its callback returns
+    private void transmit(HttpRequest request, final Transport.Callback callback) {
+        pending.incrementAndGet();
+        if (breaker != null) breaker.onSend(request);
+        transport.send(request, new Transport.Callback() {
+            @Override
+            public void onComplete(HttpRequest request, boolean success) {
+                try {
+                    callback.onComplete(request, success);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    private HttpRequest newRequest(URL url, byte[] body) {
+        HttpRequest request = new HttpRequest(url, "POST");
+
+        request.setRequestProperty("Content-Type", "application/json");
+        request.setRequestProperty("Accept", "application/json");
+        request.setBody(body);
+        request.setGzipThreshold(gzipThreshold);
+        request.setTimeout(requestTimeout);
+
+        return request;
+    }
+
+    // The retry goes to the retry lane once its delay is over, the sender sends it in its turn
+    private void retryRequest(final HttpRequest request) {
+        if (closing) {
+            StatusLogger.getLogger().error("The notifier is closing, dropping a failed request without retrying it.");
+            return;
+        }
+
+        long delay = retryPolicy.nextDelay(request);
+        if (delay < 0) return;
+
+        scheduledRetries.add(request);
+        SharedResources.EXECUTOR.schedule(new Runnable() {
+            @Override
+            public void run() {
+                // a close may have sent it already
+                if (scheduledRetries.remove(request)) enqueueRetry(request);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void enqueueRetry(HttpRequest request) {
+        if (retries.offer(request)) {
+            queue.signal();
+        } else {
+            droppedRetries.incrementAndGet();
+        }
+    }
+
+    // every attempt feeds the stats, the retry counters and the circuit breaker
+    private void recordAttempt(HttpRequest request) {
+        stats.onAttempt(request);
+        retryPolicy.onComplete(request);
+        if (breaker != null) breaker.onComplete(request);
+    }
+
+    // Sleeps while the circuit breaker holds requests back, false if requests may be sent
+    private boolean holdWhileOpen() throws InterruptedException {
+        if (breaker == null || breaker.allowRequest()) return false;
+
+        long remaining = TimeUnit.NANOSECONDS.toMillis(breaker.remainingOpenTime());
+        Thread.sleep(Math.max(BREAKER_POLL_TIMEOUT, remaining));
+        return true;
+    }
+
+    private final Transport.Callback retryOnFailure = new Transport.Callback() {
+        @Override
+        public void onComplete(HttpRequest request, boolean success) {
+            recordAttempt(request);
+            if (!success) retryRequest(request);
+        }
+    };
+
+    private class BatchCallback implements Transport.Callback {
+
+        private final List<byte[]> payloads;
+
+        BatchCallback(List<byte[]> payloads) {
+            this.payloads = payloads;
+        }
+
+        @Override
+        public void onComplete(HttpRequest request, boolean success) {
+            recordAttempt(request);
+            if (success) return;
+
+            // a rejected batch may only hold one bad item, but a bad token fails every item the same way
+            if (request.getOutcome() != Outcome.PERMANENT || isPayloadRejected(request.getResponseCode())) {
+                retryIndividually(payloads);
+            } else {
+                StatusLogger.getLogger().error("A batch of " + payloads.size() + " items was refused with status " + request.getResponseCode()
+                        + ", dropping it.");
+            }
+        }
+
+        private boolean isPayloadRejected(int responseCode) {
+            return responseCode == 400 || responseCode == 413 || responseCode == 422;
+        }
+    }
+
+    private class Sender implements Runnable {
+
+        private final Batcher batcher;
+        private final JsonWriter writer;
+
+        private int sinceRetry;
+
+        Sender(Batcher batcher, JsonWriter writer) {
+            this.batcher = batcher;
+            this.writer = writer;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    // a flush drains the lanes without lingering for fuller batches
+                    long flushRequest = flushRequests.get();
+                    boolean flushing = flushRequest > flushed;
+
+                    long timeout = TimeUnit.MILLISECONDS.toNanos(SENDER_POLL_TIMEOUT);
+                    if (batcher != null && !batcher.isEmpty()) timeout = batcher.remainingLinger(TimeUnit.NANOSECONDS);
+                    if (flushing) timeout = 0;
+
+                    // while the breaker is open the items wait in their lanes, whose overflow policies apply
+                    boolean gated = spool == null && breaker != null;
+                    if (gated && holdWhileOpen()) continue;
+                    boolean probing = gated && breaker.getState() == CircuitBreaker.State.HALF_OPEN;
+
+                    if (!retries.isEmpty()) timeout = 0;
+
+                    Notification notification = queue.poll(timeout, TimeUnit.NANOSECONDS);
+                    if (notification != null) {
+                        send(notification, batcher, writer);
+                        sinceRetry++;
+                    }
+
+                    // a due retry goes out when there's nothing fresh to send, or once per round of fresh ones, and
+                    // never next to the notification that is the probe, a probe is a single request
+                    HttpRequest retry = null;
+                    boolean retryTurn = notification == null || sinceRetry >= retryInterval;
+                    if (retryTurn && !(probing && notification != null)) {
+                        retry = retries.poll();
+                        if (retry != null) transmit(retry, retryOnFailure);
+                        sinceRetry = 0;
+                    }
+
+                    if (probing) {
+                        // the probe goes out now rather than lingering in the batch
+                        if (batcher != null && !batcher.isEmpty()) flushBatch(batcher);
+                        if (notification == null && retry == null) breaker.cancelProbe();
+                    }
+
+                    if (batcher != null && (batcher.isReady() || (flushing && notification == null))) flushBatch(batcher);
+
+                    // everything polled so far is sent, in flight, or in the spool
+                    if (flushing && notification == null && retry == null && queue.size() == 0) flushed = flushRequest;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends what the sender wrote to the spool, committing the read offset once the endpoint accepted it. Failed
+     * sends are retried from the spool with a growing delay, and the records found at startup are replayed at a
+     * limited rate.
+     */
+    private class SpoolReader implements Runnable {
+
+        private final Spool spool;
+        private final int batchSize;
+        private final long replayInterval;
+
+        private int failures;
+
+        SpoolReader(Spool spool, int batchSize, int replayRate) {
+            this.spool = spool;
+            this.batchSize = batchSize;
+            this.replayInterval = replayRate > 0 ? TimeUnit.SECONDS.toMillis(1) / replayRate : 0;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    if (holdWhileOpen()) continue;
+
+                    boolean replaying = spool.isReplaying();
+
+                    List<byte[]> payloads = new ArrayList<byte[]>(batchSize);
+                    byte[] payload;
+                    while (payloads.size() < batchSize && (payload = spool.next()) != null) {
+                        payloads.add(payload);
+                    }
+
+                    if (payloads.isEmpty()) {
+                        if (breaker != null) breaker.cancelProbe();
+                        Thread.sleep(SPOOL_POLL_TIMEOUT);
+                        continue;
+                    }
+
+                    Delivery delivery = deliver(payloads);
+                    if (delivery.isSuccess()) {
+                        spool.commit();
+                        failures = 0;
+                        if (replaying) Thread.sleep(replayInterval * payloads.size());
+                    } else if (delivery.getRequest().getOutcome() == Outcome.PERMANENT) {
+                        // sending them again would be refused the same way
+                        StatusLogger.getLogger().error("The endpoint refused " + payloads.size() + " spooled items with status "
+                                + delivery.getRequest().getResponseCode() + ", dropping them.");
+                        spool.commit();
+                        failures = 0;
+                    } else {
+                        spool.rewind();
+                        failures++;
+                        Thread.sleep(retryPolicy.backoff(failures, delivery.getRequest()));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Throwable e) {
+                    StatusLogger.getLogger().error("There was an error sending the spooled items.", e);
+                }
+            }
+        }
+
+        private Delivery deliver(List<byte[]> payloads) throws InterruptedException {
+            HttpRequest request = payloads.size() == 1 ? newRequest(url, payloads.get(0))
+                    : newRequest(batchUrl, Batcher.toBody(payloads));
+
+            Delivery delivery = new Delivery();
+            transmit(request, delivery);
+            delivery.await();
+            return delivery;
+        }
+    }
+
+    private class Delivery implements Transport.Callback {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile HttpRequest request;
+        private volatile boolean success;
+
+        @Override
+        public void onComplete(HttpRequest request, boolean success) {
+            recordAttempt(request);
+            this.request = request;
+            this.success = success;
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            done.await();
+        }
+
+        boolean isSuccess() {
+            return success;
+        }
+
+        HttpRequest getRequest() {
+            return request;
+        }
+    }
+
+    private static URL getURL(String urlString) {
+        URL url;
+        try {
+            url = new URL(urlString);
+        } catch (MalformedURLException e) {
+            StatusLogger.getLogger().error("Error parsing the notifiying URL", e);
+            throw new IllegalArgumentException();
+        }
+        return url;
+    }
+
+}
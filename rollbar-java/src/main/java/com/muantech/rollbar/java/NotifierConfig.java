@@ -0,0 +1,365 @@
+package com.muantech.rollbar.java;
+
+public class NotifierConfig {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final long DEFAULT_BLOCK_TIMEOUT = 100;
+    public static final int DEFAULT_BATCH_SIZE = 1;
+    public static final int DEFAULT_BATCH_BYTES = 512 * 1024;
+    public static final long DEFAULT_BATCH_LINGER = 200;
+    public static final int DEFAULT_GZIP_THRESHOLD = 1024;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1;
+    public static final int DEFAULT_REQUEST_TIMEOUT = HttpRequest.DEFAULT_TIMEOUT;
+    public static final long DEFAULT_SPOOL_MAX_BYTES = 64 * 1024 * 1024;
+    public static final int DEFAULT_SPOOL_SEGMENT_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_SPOOL_REPLAY_RATE = 10;
+    public static final int DEFAULT_RAW_TRACE_LENGTH = 4096;
+    public static final int DEFAULT_RETRY_CAPACITY = 256;
+    public static final int DEFAULT_RETRY_WEIGHT = 1;
+    public static final int DEFAULT_MAX_RETRIES = RollbarNotifier.MAX_RETRIES;
+    public static final long DEFAULT_RETRY_BASE_DELAY = 1000;
+    public static final long DEFAULT_RETRY_MAX_DELAY = 60000;
+    public static final int DEFAULT_RETRY_BUDGET = 20;
+    public static final int DEFAULT_BREAKER_FAILURE_RATE = 50;
+    public static final long DEFAULT_BREAKER_SLOW_CALL = 2000;
+    public static final long DEFAULT_BREAKER_OPEN_TIME = 30000;
+    public static final int DEFAULT_BREAKER_WINDOW = 20;
+    public static final long DEFAULT_SHUTDOWN_TIMEOUT = 2000;
+
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_LOWEST_LEVEL;
+    private long blockTimeout = DEFAULT_BLOCK_TIMEOUT;
+
+    private String laneCapacities;
+    private String lanePolicies;
+    private String laneWeights = PriorityLanes.DEFAULT_WEIGHTS;
+    private int retryCapacity = DEFAULT_RETRY_CAPACITY;
+    private int retryWeight = DEFAULT_RETRY_WEIGHT;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryBaseDelay = DEFAULT_RETRY_BASE_DELAY;
+    private long retryMaxDelay = DEFAULT_RETRY_MAX_DELAY;
+    private int retryBudget = DEFAULT_RETRY_BUDGET;
+
+    private int breakerFailureRate = DEFAULT_BREAKER_FAILURE_RATE;
+    private long breakerSlowCall = DEFAULT_BREAKER_SLOW_CALL;
+    private long breakerOpenTime = DEFAULT_BREAKER_OPEN_TIME;
+    private int breakerWindow = DEFAULT_BREAKER_WINDOW;
+
+    private String batchUrl;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int batchBytes = DEFAULT_BATCH_BYTES;
+    private long batchLinger = DEFAULT_BATCH_LINGER;
+
+    private int gzipThreshold = DEFAULT_GZIP_THRESHOLD;
+
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+
+    private String relayAddress;
+
+    private String spoolDir;
+    private long spoolMaxBytes = DEFAULT_SPOOL_MAX_BYTES;
+    private int spoolSegmentBytes = DEFAULT_SPOOL_SEGMENT_BYTES;
+    private int spoolReplayRate = DEFAULT_SPOOL_REPLAY_RATE;
+
+    private boolean streamingJson = true;
+    private boolean jmx = true;
+    private long shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+    private int rawTraceLength = DEFAULT_RAW_TRACE_LENGTH;
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity > 0) this.queueCapacity = queueCapacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        if (overflowPolicy != null) this.overflowPolicy = overflowPolicy;
+    }
+
+    public long getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    // milliseconds a producer waits for room when the policy is BLOCK
+    public void setBlockTimeout(long blockTimeout) {
+        if (blockTimeout >= 0) this.blockTimeout = blockTimeout;
+    }
+
+    public String getLaneCapacities() {
+        return laneCapacities;
+    }
+
+    // capacity of the lane of each level, i.e. "ERROR=4096,DEBUG=64", the others get the queue capacity
+    public void setLaneCapacities(String laneCapacities) {
+        this.laneCapacities = laneCapacities;
+    }
+
+    public String getLanePolicies() {
+        return lanePolicies;
+    }
+
+    // overflow policy of the lane of each level, i.e. "ERROR=block,DEBUG=drop-oldest", the others get the overflow policy
+    public void setLanePolicies(String lanePolicies) {
+        this.lanePolicies = lanePolicies;
+    }
+
+    public String getLaneWeights() {
+        return laneWeights;
+    }
+
+    // notifications taken from the lane of each level in its turn, i.e. "ERROR=8,WARNING=4,INFO=2,DEBUG=1"
+    public void setLaneWeights(String laneWeights) {
+        if (laneWeights != null && !laneWeights.isEmpty()) this.laneWeights = laneWeights;
+    }
+
+    public int getRetryCapacity() {
+        return retryCapacity;
+    }
+
+    // retries waiting to be sent at most, the ones coming due with the lane full are dropped
+    public void setRetryCapacity(int retryCapacity) {
+        if (retryCapacity > 0) this.retryCapacity = retryCapacity;
+    }
+
+    public int getRetryWeight() {
+        return retryWeight;
+    }
+
+    // retries sent per round of fresh notifications while there is fresh traffic
+    public void setRetryWeight(int retryWeight) {
+        if (retryWeight > 0) this.retryWeight = retryWeight;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    // attempts of a request at most, the first one included
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries > 0) this.maxRetries = maxRetries;
+    }
+
+    public long getRetryBaseDelay() {
+        return retryBaseDelay;
+    }
+
+    // milliseconds, the delay before a retry is drawn between 0 and this value doubled on every attempt
+    public void setRetryBaseDelay(long retryBaseDelay) {
+        if (retryBaseDelay > 0) this.retryBaseDelay = retryBaseDelay;
+    }
+
+    public long getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    // milliseconds the doubled delay never goes beyond, unless the endpoint asks for more with Retry-After
+    public void setRetryMaxDelay(long retryMaxDelay) {
+        if (retryMaxDelay > 0) this.retryMaxDelay = retryMaxDelay;
+    }
+
+    public int getRetryBudget() {
+        return retryBudget;
+    }
+
+    // retries allowed as a percentage of the items sent for the first time
+    public void setRetryBudget(int retryBudget) {
+        if (retryBudget >= 0) this.retryBudget = retryBudget;
+    }
+
+    public int getBreakerFailureRate() {
+        return breakerFailureRate;
+    }
+
+    // percentage of failed or slow requests that opens the circuit breaker, 0 disables it
+    public void setBreakerFailureRate(int breakerFailureRate) {
+        if (breakerFailureRate >= 0 && breakerFailureRate <= 100) this.breakerFailureRate = breakerFailureRate;
+    }
+
+    public long getBreakerSlowCall() {
+        return breakerSlowCall;
+    }
+
+    // milliseconds past which a request counts as failed for the circuit breaker, 0 only counts real failures
+    public void setBreakerSlowCall(long breakerSlowCall) {
+        if (breakerSlowCall >= 0) this.breakerSlowCall = breakerSlowCall;
+    }
+
+    public long getBreakerOpenTime() {
+        return breakerOpenTime;
+    }
+
+    // milliseconds nothing is sent once the circuit breaker opens, before a probe is tried
+    public void setBreakerOpenTime(long breakerOpenTime) {
+        if (breakerOpenTime > 0) this.breakerOpenTime = breakerOpenTime;
+    }
+
+    public int getBreakerWindow() {
+        return breakerWindow;
+    }
+
+    // number of last requests the failure rate is computed on
+    public void setBreakerWindow(int breakerWindow) {
+        if (breakerWindow > 0) this.breakerWindow = breakerWindow;
+    }
+
+    public boolean isBatching() {
+        return batchUrl != null && !batchUrl.isEmpty() && batchSize > 1;
+    }
+
+    public String getBatchUrl() {
+        return batchUrl;
+    }
+
+    // endpoint accepting a JSON array of item payloads, i.e. a batch-capable API or a local relay
+    public void setBatchUrl(String batchUrl) {
+        this.batchUrl = batchUrl;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize > 0) this.batchSize = batchSize;
+    }
+
+    public int getBatchBytes() {
+        return batchBytes;
+    }
+
+    public void setBatchBytes(int batchBytes) {
+        if (batchBytes > 0) this.batchBytes = batchBytes;
+    }
+
+    public long getBatchLinger() {
+        return batchLinger;
+    }
+
+    // milliseconds the first item of a batch waits for company
+    public void setBatchLinger(long batchLinger) {
+        if (batchLinger >= 0) this.batchLinger = batchLinger;
+    }
+
+    public int getGzipThreshold() {
+        return gzipThreshold;
+    }
+
+    // request bodies of at least this many bytes are gzip-compressed, a negative value disables compression
+    public void setGzipThreshold(int gzipThreshold) {
+        this.gzipThreshold = gzipThreshold;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    // more than one request in flight switches to the asynchronous transport
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight > 0) this.maxInFlight = maxInFlight;
+    }
+
+    public int getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    // milliseconds for connect and read, and the deadline of a request in the asynchronous transport
+    public void setRequestTimeout(int requestTimeout) {
+        if (requestTimeout > 0) this.requestTimeout = requestTimeout;
+    }
+
+    public boolean isRelaying() {
+        return relayAddress != null && !relayAddress.isEmpty();
+    }
+
+    public String getRelayAddress() {
+        return relayAddress;
+    }
+
+    // host:port of a relay on the same host receiving the items over UDP, null sends them to the endpoint
+    public void setRelayAddress(String relayAddress) {
+        this.relayAddress = relayAddress;
+    }
+
+    public boolean isSpooling() {
+        return spoolDir != null && !spoolDir.isEmpty();
+    }
+
+    public String getSpoolDir() {
+        return spoolDir;
+    }
+
+    // directory of the on-disk spool, items are only kept in memory without it
+    public void setSpoolDir(String spoolDir) {
+        this.spoolDir = spoolDir;
+    }
+
+    public long getSpoolMaxBytes() {
+        return spoolMaxBytes;
+    }
+
+    public void setSpoolMaxBytes(long spoolMaxBytes) {
+        if (spoolMaxBytes > 0) this.spoolMaxBytes = spoolMaxBytes;
+    }
+
+    public int getSpoolSegmentBytes() {
+        return spoolSegmentBytes;
+    }
+
+    public void setSpoolSegmentBytes(int spoolSegmentBytes) {
+        if (spoolSegmentBytes > 0) this.spoolSegmentBytes = spoolSegmentBytes;
+    }
+
+    public int getSpoolReplayRate() {
+        return spoolReplayRate;
+    }
+
+    // items per second sent from what was left in the spool by a previous run, 0 for no limit
+    public void setSpoolReplayRate(int spoolReplayRate) {
+        if (spoolReplayRate >= 0) this.spoolReplayRate = spoolReplayRate;
+    }
+
+    public boolean isStreamingJson() {
+        return streamingJson;
+    }
+
+    // false builds every payload as an org.json tree like the first versions did
+    public void setStreamingJson(boolean streamingJson) {
+        this.streamingJson = streamingJson;
+    }
+
+    public boolean isJmx() {
+        return jmx;
+    }
+
+    // whether the stats are registered as the com.muantech.rollbar:type=Notifier MBean
+    public void setJmx(boolean jmx) {
+        this.jmx = jmx;
+    }
+
+    public long getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    // milliseconds the shutdown hook and the appender stop give the notifier to send what's left, 0 adds no hook
+    // and doesn't wait
+    public void setShutdownTimeout(long shutdownTimeout) {
+        if (shutdownTimeout >= 0) this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public int getRawTraceLength() {
+        return rawTraceLength;
+    }
+
+    // characters of raw trace text per trace of the chain, 0 leaves it out and a negative value doesn't limit it
+    public void setRawTraceLength(int rawTraceLength) {
+        this.rawTraceLength = rawTraceLength;
+    }
+
+}
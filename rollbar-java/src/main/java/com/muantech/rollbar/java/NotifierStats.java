@@ -0,0 +1,317 @@
+package com.muantech.rollbar.java;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * What the notifier measures about itself: how fast items come in, how long they wait and take to build, how big
+ * they are, and how the endpoint answers. Recording is lock-free, and the rest of the numbers are read from the
+ * queue, the retry policy and the circuit breaker when asked.
+ *
+ * {@link #snapshot()} gives them all at once, and the same numbers are exposed as an MXBean.
+ */
+public class NotifierStats implements NotifierStatsMXBean {
+
+    static final long TICK_INTERVAL = 5;
+
+    // one minute average of a rate ticked every TICK_INTERVAL seconds, as in the Unix load average
+    private static final double ALPHA = 1 - Math.exp(-TICK_INTERVAL / 60.0);
+
+    private static final int MAX_STATUS = 600;
+
+    private final Notifier notifier;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong uncounted = new AtomicLong();
+    private volatile double enqueueRate = -1;
+
+    private final Histogram queueTime = new Histogram();
+    private final Histogram buildTime = new Histogram();
+    private final Histogram payloadBytes = new Histogram();
+    private final Histogram httpLatency = new Histogram();
+
+    private final AtomicLongArray responseCodes = new AtomicLongArray(MAX_STATUS);
+    private final AtomicLong sendErrors = new AtomicLong();
+
+    NotifierStats(Notifier notifier) {
+        this.notifier = notifier;
+    }
+
+    void onEnqueue() {
+        enqueued.incrementAndGet();
+        uncounted.incrementAndGet();
+    }
+
+    void onDequeue(Notification notification) {
+        queueTime.record(System.nanoTime() - notification.getEnqueueTime());
+    }
+
+    void onBuild(long nanos, int bytes) {
+        buildTime.record(nanos);
+        payloadBytes.record(bytes);
+    }
+
+    void onAttempt(HttpRequest request) {
+        httpLatency.record(request.getLatency());
+        int status = request.getResponseCode();
+        responseCodes.incrementAndGet(status > 0 && status < MAX_STATUS ? status : 0);
+    }
+
+    // an item lost to an unexpected error of the send path
+    void onSendError() {
+        sendErrors.incrementAndGet();
+    }
+
+    // Run every TICK_INTERVAL seconds
+    void tick() {
+        double instantRate = uncounted.getAndSet(0) / (double) TICK_INTERVAL;
+        double rate = enqueueRate;
+        enqueueRate = rate < 0 ? instantRate : rate + ALPHA * (instantRate - rate);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    @Override
+    public int getQueueSize() {
+        return notifier.getQueueSize();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return notifier.getQueueCapacity();
+    }
+
+    @Override
+    public long getEnqueuedCount() {
+        return enqueued.get();
+    }
+
+    @Override
+    public double getEnqueueRate() {
+        return Math.max(0, enqueueRate);
+    }
+
+    @Override
+    public double getQueueTimeP50() {
+        return millis(queueTime.snapshot().getValueAtPercentile(0.5));
+    }
+
+    @Override
+    public double getQueueTimeP99() {
+        return millis(queueTime.snapshot().getValueAtPercentile(0.99));
+    }
+
+    @Override
+    public double getQueueTimeMax() {
+        return millis(queueTime.snapshot().getMax());
+    }
+
+    @Override
+    public double getBuildTimeP50() {
+        return millis(buildTime.snapshot().getValueAtPercentile(0.5));
+    }
+
+    @Override
+    public double getBuildTimeP99() {
+        return millis(buildTime.snapshot().getValueAtPercentile(0.99));
+    }
+
+    @Override
+    public long getPayloadBytesP50() {
+        return payloadBytes.snapshot().getValueAtPercentile(0.5);
+    }
+
+    @Override
+    public long getPayloadBytesP99() {
+        return payloadBytes.snapshot().getValueAtPercentile(0.99);
+    }
+
+    @Override
+    public long getPayloadBytesMax() {
+        return payloadBytes.snapshot().getMax();
+    }
+
+    @Override
+    public double getHttpLatencyP50() {
+        return millis(httpLatency.snapshot().getValueAtPercentile(0.5));
+    }
+
+    @Override
+    public double getHttpLatencyP99() {
+        return millis(httpLatency.snapshot().getValueAtPercentile(0.99));
+    }
+
+    @Override
+    public double getHttpLatencyP999() {
+        return millis(httpLatency.snapshot().getValueAtPercentile(0.999));
+    }
+
+    @Override
+    public double getHttpLatencyMax() {
+        return millis(httpLatency.snapshot().getMax());
+    }
+
+    @Override
+    public Map<Integer, Long> getResponseCodes() {
+        Map<Integer, Long> codes = new TreeMap<Integer, Long>();
+        for (int i = 0; i < MAX_STATUS; i++) {
+            long count = responseCodes.get(i);
+            if (count > 0) codes.put(i, count);
+        }
+        return codes;
+    }
+
+    @Override
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> outcomes = new LinkedHashMap<String, Long>();
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome.name(), notifier.getOutcomeCount(outcome));
+        }
+        return outcomes;
+    }
+
+    @Override
+    public long getRetryCount() {
+        return notifier.getRetryCount();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (long count : getDroppedByReason().values()) {
+            dropped += count;
+        }
+        return dropped;
+    }
+
+    @Override
+    public Map<String, Long> getDroppedByReason() {
+        Map<String, Long> dropped = new LinkedHashMap<String, Long>();
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            dropped.put(policy.name(), notifier.getDroppedCount(policy));
+        }
+        dropped.put("RETRY_LANE_FULL", notifier.getDroppedRetryCount());
+        dropped.put("RETRY_BUDGET", notifier.getRetryBudgetExhaustedCount());
+        dropped.put("RETRIES_EXHAUSTED", notifier.getGivenUpCount());
+        dropped.put("SPOOL_EVICTED", notifier.getSpoolEvictedCount());
+        dropped.put("SEND_ERROR", sendErrors.get());
+        return dropped;
+    }
+
+    @Override
+    public long getSendErrorCount() {
+        return sendErrors.get();
+    }
+
+    @Override
+    public String getCircuitState() {
+        return notifier.getCircuitState().name();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * The numbers at one point in time, times in nanoseconds.
+     */
+    public static class Snapshot {
+
+        private final int queueSize;
+        private final int queueCapacity;
+        private final long enqueuedCount;
+        private final double enqueueRate;
+        private final Histogram.Snapshot queueTime;
+        private final Histogram.Snapshot buildTime;
+        private final Histogram.Snapshot payloadBytes;
+        private final Histogram.Snapshot httpLatency;
+        private final Map<Integer, Long> responseCodes;
+        private final Map<String, Long> outcomes;
+        private final long retryCount;
+        private final Map<String, Long> droppedByReason;
+        private final CircuitBreaker.State circuitState;
+
+        Snapshot(NotifierStats stats) {
+            this.queueSize = stats.getQueueSize();
+            this.queueCapacity = stats.getQueueCapacity();
+            this.enqueuedCount = stats.getEnqueuedCount();
+            this.enqueueRate = stats.getEnqueueRate();
+            this.queueTime = stats.queueTime.snapshot();
+            this.buildTime = stats.buildTime.snapshot();
+            this.payloadBytes = stats.payloadBytes.snapshot();
+            this.httpLatency = stats.httpLatency.snapshot();
+            this.responseCodes = stats.getResponseCodes();
+            this.outcomes = stats.getOutcomes();
+            this.retryCount = stats.getRetryCount();
+            this.droppedByReason = stats.getDroppedByReason();
+            this.circuitState = stats.notifier.getCircuitState();
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public long getEnqueuedCount() {
+            return enqueuedCount;
+        }
+
+        public double getEnqueueRate() {
+            return enqueueRate;
+        }
+
+        public Histogram.Snapshot getQueueTime() {
+            return queueTime;
+        }
+
+        public Histogram.Snapshot getBuildTime() {
+            return buildTime;
+        }
+
+        public Histogram.Snapshot getPayloadBytes() {
+            return payloadBytes;
+        }
+
+        public Histogram.Snapshot getHttpLatency() {
+            return httpLatency;
+        }
+
+        public Map<Integer, Long> getResponseCodes() {
+            return responseCodes;
+        }
+
+        public Map<String, Long> getOutcomes() {
+            return outcomes;
+        }
+
+        public long getRetryCount() {
+            return retryCount;
+        }
+
+        public Map<String, Long> getDroppedByReason() {
+            return droppedByReason;
+        }
+
+        public long getDroppedCount() {
+            long dropped = 0;
+            for (long count : droppedByReason.values()) {
+                dropped += count;
+            }
+            return dropped;
+        }
+
+        public CircuitBreaker.State getCircuitState() {
+            return circuitState;
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.muantech.rollbar.java;
+
+import java.util.Map;
+
+/**
+ * A notifier as seen from JMX, registered as com.muantech.rollbar:type=Notifier, with the name of the notifier, i.e.
+ * the appender name, as in com.muantech.rollbar:type=Notifier,name="rollbar". Times are in milliseconds.
+ */
+public interface NotifierStatsMXBean {
+
+    int getQueueSize();
+
+    int getQueueCapacity();
+
+    long getEnqueuedCount();
+
+    // notifications queued per second, averaged over the last minute
+    double getEnqueueRate();
+
+    double getQueueTimeP50();
+
+    double getQueueTimeP99();
+
+    double getQueueTimeMax();
+
+    double getBuildTimeP50();
+
+    double getBuildTimeP99();
+
+    long getPayloadBytesP50();
+
+    long getPayloadBytesP99();
+
+    long getPayloadBytesMax();
+
+    double getHttpLatencyP50();
+
+    double getHttpLatencyP99();
+
+    double getHttpLatencyP999();
+
+    double getHttpLatencyMax();
+
+    // status of the responses, 0 for the attempts that got none
+    Map<Integer, Long> getResponseCodes();
+
+    Map<String, Long> getOutcomes();
+
+    long getRetryCount();
+
+    long getDroppedCount();
+
+    // overflow policies, retry lane, retry budget, given up retries and spool evictions
+    Map<String, Long> getDroppedByReason();
+
+    long getSendErrorCount();
+
+    String getCircuitState();
+
+}
@@ -0,0 +1,627 @@
+package com.muantech.rollbar.java;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+public class NotifyBuilder {
+
+    private static final String NOTIFIER_VERSION = "0.0.1";
+
+    private static final int FRAME_CACHE_SIZE = 4096;
+
+    private final String accessToken;
+    private final String environment;
+
+    private final JSONObject notifierData;
+    private final JSONObject serverData;
+
+    // the parts of the payload that never change, encoded once for the streaming writer
+    private final byte[] payloadFields;
+    private final byte[] dataFields;
+    private final byte[] trailingDataFields;
+
+    private final FrameCache frameCache = new FrameCache(FRAME_CACHE_SIZE);
+
+    // maximum length of the raw text of each trace, 0 leaves it out, negative means no limit
+    private final int rawTraceLength;
+
+    NotifyBuilder(String accessToken, String environment) throws JSONException, UnknownHostException {
+        this(accessToken, environment, NotifierConfig.DEFAULT_RAW_TRACE_LENGTH);
+    }
+
+    NotifyBuilder(String accessToken, String environment, int rawTraceLength) throws JSONException, UnknownHostException {
+        this.accessToken = accessToken;
+        this.environment = environment;
+        this.rawTraceLength = rawTraceLength;
+
+        notifierData = getNotifierData();
+        serverData = getServerData();
+
+        JsonWriter out = new JsonWriter(256);
+
+        out.reset().beginObject();
+        out.field("access_token", accessToken);
+        payloadFields = fields(out.endObject());
+
+        out.reset().beginObject();
+        out.field("environment", environment);
+        out.field("language", "java");
+        dataFields = fields(out.endObject());
+
+        out.reset().beginObject();
+        out.name("server").beginObject();
+        out.field("host", serverData.optString("host", null));
+        out.field("ip", serverData.optString("ip", null));
+        out.endObject();
+        out.name("notifier").beginObject();
+        out.field("name", notifierData.optString("name", null));
+        out.field("version", notifierData.optString("version", null));
+        out.endObject();
+        trailingDataFields = fields(out.endObject());
+    }
+
+    // the fields of the written object, without its braces
+    private static byte[] fields(JsonWriter object) {
+        byte[] json = object.toByteArray();
+        return Arrays.copyOfRange(json, 1, json.length - 1);
+    }
+
+    JSONObject build(String level, String message, Throwable throwable, Map<String, Object> context) throws JSONException {
+        JSONObject customData = new JSONObject();
+        if (context != null) fillCustomData(customData, context);
+        return build(level, message, throwable, context, customData);
+    }
+
+    /**
+     * The payload of a context as {@link #write} encodes it. Only the custom entries of the context are custom data,
+     * its other fields are not like the String values of a map.
+     */
+    JSONObject build(String level, String message, Throwable throwable, NotificationContext context) throws JSONException {
+        if (context == null) return build(level, message, throwable, new HashMap<String, Object>());
+
+        JSONObject customData = new JSONObject();
+        for (int i = 0; i < context.getCustomSize(); i++) {
+            putCustomValue(customData, context.getCustomName(i), context.getCustomValue(i));
+        }
+        return build(level, message, throwable, context.toMap(), customData);
+    }
+
+    private JSONObject build(String level, String message, Throwable throwable, Map<String, Object> context,
+            JSONObject customData) throws JSONException {
+
+        JSONObject payload = new JSONObject();
+
+        // access token
+        payload.put("access_token", this.accessToken);
+
+        // data
+        JSONObject data = new JSONObject();
+
+        // general values
+        data.put("environment", this.environment);
+        data.put("level", level);
+        data.put("platform", getValue("platform", context, "java"));
+        data.put("framework", getValue("framework", context, "java"));
+        data.put("language", "java");
+        data.put("timestamp", System.currentTimeMillis() / 1000);
+
+        // message data
+        data.put("body", getBody(message, throwable));
+
+        // request data
+        if (context != null) {
+            JSONObject requestData = getRequestData(context);
+            if (requestData != null && requestData.length() > 0) data.put("request", requestData);
+        }
+
+        // log message
+        if (throwable != null && message != null) {
+            customData.put("log", message);
+        }
+
+        // logs
+        if (context != null) {
+            JSONArray logsData = getLogsData(context);
+            if (logsData != null) customData.put("logs", logsData);
+        }
+
+        if (customData.length() > 0) data.put("custom", customData);
+
+        // person data
+        if (context != null) {
+            JSONObject personData = getPersonData(context);
+            if (personData != null) data.put("person", personData);
+        }
+
+        // client data
+        if (context != null) {
+            JSONObject clientData = getClientData(context);
+            if (clientData != null) data.put("client", clientData);
+        }
+
+        // server data
+        data.put("server", serverData);
+
+        // notifier data
+        data.put("notifier", notifierData);
+
+        payload.put("data", data);
+
+        return payload;
+    }
+
+    /**
+     * Same payload as {@link #build}, encoded straight into the writer without the JSONObject tree.
+     */
+    void write(JsonWriter out, String level, String message, Throwable throwable, NotificationContext context) {
+        out.beginObject();
+
+        // access token
+        out.rawFields(payloadFields);
+
+        // data
+        out.name("data").beginObject();
+
+        // general values
+        out.rawFields(dataFields);
+        out.field("level", level);
+        out.field("platform", context == null || context.getPlatform() == null ? "java" : context.getPlatform());
+        out.field("framework", context == null || context.getFramework() == null ? "java" : context.getFramework());
+        out.field("timestamp", System.currentTimeMillis() / 1000);
+
+        // message data
+        writeBody(out, message, throwable);
+
+        // request data
+        if (context != null) writeRequestData(out, context);
+
+        // custom data
+        out.beginOptionalObject("custom");
+        if (context != null) writeCustomData(out, context);
+
+        // log message
+        if (throwable != null && message != null) {
+            out.field("log", message);
+        }
+
+        // logs
+        if (context != null) writeLogsData(out, context);
+
+        out.endOptionalObject();
+
+        // person data
+        if (context != null) writePersonData(out, context);
+
+        // client data
+        if (context != null) writeClientData(out, context);
+
+        // server and notifier data
+        out.rawFields(trailingDataFields);
+
+        out.endObject();
+        out.endObject();
+    }
+
+    private void writeBody(JsonWriter out, String message, Throwable original) {
+        out.name("body").beginObject();
+
+        if (original != null) {
+            List<Throwable> chain = new ArrayList<Throwable>();
+            for (Throwable throwable = original; throwable != null; throwable = throwable.getCause()) {
+                chain.add(throwable);
+            }
+
+            out.name("trace_chain").beginArray();
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                writeTrace(out, chain.get(i));
+            }
+            out.endArray();
+        }
+
+        if (original == null && message != null) {
+            out.name("message").beginObject();
+            out.field("body", message);
+            out.endObject();
+        }
+
+        out.endObject();
+    }
+
+    private void writeRequestData(JsonWriter out, NotificationContext context) {
+        out.beginOptionalObject("request");
+
+        out.field("url", context.getUrl());
+        out.field("method", context.getMethod());
+        writeJsonObject(out, "headers", context.getHeaders(), context.getHeadersJson());
+        writeJsonObject(out, "params", context.getParams(), context.getParamsJson());
+        out.field("query_string", context.getQuery());
+        out.field("user_ip", context.getUserIp());
+        out.field("session", context.getSessionId());
+        out.field("protocol", context.getProtocol());
+        out.field("id", context.getRequestId());
+
+        out.endOptionalObject();
+    }
+
+    // The values put one by one, or else the JSON text of an object as the eager RollbarFilter puts it
+    private void writeJsonObject(JsonWriter out, String name, Map<String, String> values, String text) {
+        if (!values.isEmpty()) {
+            out.name(name).beginObject();
+            for (Entry<String, String> entry : values.entrySet()) {
+                out.field(entry.getKey(), entry.getValue());
+            }
+            out.endObject();
+            return;
+        }
+
+        if (text == null) return;
+        String json = text.trim();
+        if (json.isEmpty()) return;
+
+        if (json.startsWith("{") && json.endsWith("}")) {
+            out.name(name).rawValue(HttpRequest.toBytes(json));
+        } else {
+            out.field(name, json);
+        }
+    }
+
+    private void writeCustomData(JsonWriter out, NotificationContext context) {
+        int size = context.getCustomSize();
+        for (int i = 0; i < size; i++) {
+            context.writeCustomValue(out, i);
+        }
+    }
+
+    private void writeLogsData(JsonWriter out, NotificationContext context) {
+        List<String> lines = context.getLogs();
+        if (lines == null) return;
+
+        out.name("logs").beginArray();
+        for (String line : lines) {
+            out.value(line);
+        }
+        out.endArray();
+    }
+
+    private void writeClientData(JsonWriter out, NotificationContext context) {
+        String browser = context.getUserAgent();
+        if (browser != null) {
+            out.name("client").beginObject();
+            out.name("javascript").beginObject();
+            out.field("browser", browser);
+            out.endObject();
+            out.endObject();
+        }
+    }
+
+    private void writePersonData(JsonWriter out, NotificationContext context) {
+        String id = context.getUserId();
+        if (id == null) return;
+
+        out.name("person").beginObject();
+        out.field("id", id);
+        out.field("username", context.getUsername());
+        out.field("email", context.getEmail());
+        out.endObject();
+    }
+
+    private void writeTrace(JsonWriter out, Throwable throwable) {
+        out.beginObject();
+
+        StackTraceElement[] elements = throwable.getStackTrace();
+        // the raw lines are gathered top frame first while the frames are written bottom up
+        String[] lines = rawTraceLength != 0 ? new String[elements.length] : null;
+        out.name("frames").beginArray();
+        for (int i = elements.length - 1; i >= 0; --i) {
+            FrameCache.Frame frame = frameCache.get(elements[i]);
+            out.rawValue(frame.getJson());
+            if (lines != null) lines[i] = frame.getLine();
+        }
+        out.endArray();
+
+        if (lines != null) out.field("raw", rawTrace(throwable, lines));
+
+        out.name("exception").beginObject();
+        out.field("class", throwable.getClass().getName());
+        out.field("message", throwable.getMessage());
+        out.endObject();
+
+        out.endObject();
+    }
+
+    /**
+     * The raw text of one trace of the chain: the exception and its own frames as printStackTrace prints them, the
+     * causes having their own trace. Cut past rawTraceLength when it's positive.
+     */
+    String rawTrace(Throwable throwable, String[] lines) {
+        StringBuilder raw = new StringBuilder(rawTraceLength > 0 ? rawTraceLength + 8 : 64 + 64 * lines.length);
+        raw.append(throwable).append('\n');
+        for (int i = 0; i < lines.length && !isCut(raw); i++) {
+            raw.append("\tat ").append(lines[i]).append('\n');
+        }
+        if (isCut(raw)) {
+            raw.setLength(rawTraceLength);
+            raw.append("\n\t...");
+        }
+        return raw.toString();
+    }
+
+    private boolean isCut(StringBuilder raw) {
+        return rawTraceLength > 0 && raw.length() > rawTraceLength;
+    }
+
+    private JSONObject getBody(String message, Throwable original) throws JSONException {
+        JSONObject body = new JSONObject();
+
+        Throwable throwable = original;
+
+        if (throwable != null) {
+            List<JSONObject> traces = new ArrayList<JSONObject>();
+            do {
+                traces.add(0, createTrace(throwable));
+                throwable = throwable.getCause();
+            } while (throwable != null);
+
+            body.put("trace_chain", new JSONArray(traces.toArray()));
+        }
+
+        if (original == null && message != null) {
+            JSONObject messageBody = new JSONObject();
+            messageBody.put("body", message);
+            body.put("message", messageBody);
+        }
+
+        return body;
+    }
+
+    @SuppressWarnings("unchecked")
+    private JSONObject getRequestData(Map<String, Object> context) throws JSONException {
+
+        JSONObject requestData = new JSONObject();
+
+        HttpServletRequest httpRequest = (context.get("request") != null && context.get("request") instanceof HttpServletRequest) ? (HttpServletRequest) context
+                .get("request") : null;
+
+        // url: full URL where this event occurred
+        String url = getValue("url", context, null);
+        if (url != null) requestData.put("url", url);
+
+        // method: the request method
+        String method = getValue("method", context, null);
+        if (method != null) requestData.put("method", method);
+
+        // headers
+        JSONObject headersData = getJsonObject("headers", context);
+        if (headersData != null) requestData.put("headers", headersData);
+
+        // params
+        JSONObject paramsData = getJsonObject("params", context);
+        if (paramsData != null) requestData.put("params", paramsData);
+
+        // query string
+        String query = getValue("query", context, null);
+        if (query != null) requestData.put("query_string", query);
+
+        // user ip
+        String userIP = getValue("user-ip", context, null);
+        if (userIP != null) requestData.put("user_ip", userIP);
+
+        // sessionId
+        String sessionId = getValue("sessionId", context, null);
+        if (sessionId != null) requestData.put("session", sessionId);
+
+        // protocol
+        String protocol = getValue("protocol", context, null);
+        if (protocol != null) requestData.put("protocol", protocol);
+
+        // requestId
+        String requestId = (String) context.get("requestId");
+        if (requestId != null) requestData.put("id", requestId);
+
+        return requestData;
+    }
+
+    @SuppressWarnings("unchecked")
+    private JSONObject fillCustomData(JSONObject customData, Map<String, Object> context) throws JSONException {
+
+        for (Entry<String, Object> entry : context.entrySet()) {
+            Object value = entry.getValue();
+            if (putCustomValue(customData, entry.getKey(), value)) {
+                continue;
+            }
+            // HTTPSession attributes
+            else if (value instanceof HttpSession) {
+                HttpSession session = (HttpSession) value;
+                Enumeration<String> attributes = session.getAttributeNames();
+                while (attributes.hasMoreElements()) {
+                    String nameSession = attributes.nextElement();
+                    Object valueSession = session.getAttribute(nameSession);
+                    if (valueSession instanceof String) {
+                        String str = (String) valueSession;
+                        customData.put("session." + nameSession, str);
+                    } else if (valueSession instanceof String[]) {
+                        String[] array = (String[]) valueSession;
+                        customData.put("session." + nameSession, Arrays.asList(array));
+                    }
+                }
+
+            }
+            // HttpServletRequest attributes
+            else if (value instanceof HttpServletRequest) {
+                HttpServletRequest servletRequest = (HttpServletRequest) value;
+                Enumeration<String> attributes = servletRequest.getAttributeNames();
+                while (attributes.hasMoreElements()) {
+                    String nameRequest = attributes.nextElement();
+                    Object valueRequest = servletRequest.getAttribute(nameRequest);
+                    if (valueRequest instanceof String) {
+                        String str = (String) valueRequest;
+                        customData.put("attribute." + nameRequest, str);
+                    } else if (valueRequest instanceof String[]) {
+                        String[] array = (String[]) valueRequest;
+                        customData.put("attribute." + nameRequest, Arrays.asList(array));
+                    }
+                }
+
+            }
+        }
+
+        return customData;
+    }
+
+    // Strings, the request attributes captured by RequestCapture as String arrays, numbers and flags
+    private boolean putCustomValue(JSONObject customData, String name, Object value) throws JSONException {
+        if (value instanceof String || value instanceof Long || value instanceof Boolean) {
+            customData.put(name, value);
+        } else if (value instanceof String[]) {
+            customData.put(name, Arrays.asList((Object[]) value));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private JSONArray getLogsData(Map<String, Object> context) {
+        JSONArray logsData = null;
+
+        List<String> lines = (List<String>) context.get("logs");
+        if (lines != null) logsData = new JSONArray(new ArrayList<Object>(lines));
+
+        return logsData;
+    }
+
+    private JSONObject getClientData(Map<String, Object> context) throws JSONException {
+        JSONObject clientData = null;
+
+        String browser = getValue("user-agent", context, null);
+        if (browser == null) {
+            HttpServletRequest request = (HttpServletRequest) context.get("request");
+            if (request != null) browser = request.getHeader("User-Agent");
+        }
+
+        if (browser != null) {
+            clientData = new JSONObject();
+
+            JSONObject javascript = new JSONObject();
+            javascript.put("browser", browser);
+
+            clientData.put("javascript", javascript);
+        }
+        return clientData;
+    }
+
+    private JSONObject getPersonData(Map<String, Object> context) throws JSONException {
+        JSONObject personData = null;
+
+        String id = getValue("user", context, null);
+        if (id != null) {
+            personData = new JSONObject();
+
+            personData.put("id", id);
+            setIfNotNull("username", personData, context);
+            setIfNotNull("email", personData, context);
+        }
+        return personData;
+    }
+
+    private JSONObject getNotifierData() throws JSONException {
+        JSONObject notifier = new JSONObject();
+        notifier.put("name", "rollbar-java");
+        notifier.put("version", NOTIFIER_VERSION);
+        return notifier;
+    }
+
+    private JSONObject getServerData() throws JSONException, UnknownHostException {
+
+        InetAddress localhost = InetAddress.getLocalHost();
+
+        String host = localhost.getHostName();
+        String ip = localhost.getHostAddress();
+
+        JSONObject notifier = new JSONObject();
+        notifier.put("host", host);
+        notifier.put("ip", ip);
+        return notifier;
+    }
+
+    private void setIfNotNull(String jsonKey, JSONObject object, Map<String, Object> context) throws JSONException {
+        setIfNotNull(jsonKey, object, jsonKey, context);
+    }
+
+    private void setIfNotNull(String jsonKey, JSONObject object, String key, Map<String, Object> context) throws JSONException {
+        String value = getValue(key, context, null);
+        if (value != null) object.put(jsonKey, value);
+    }
+
+    // The value is either a map or the JSON text of an object
+    @SuppressWarnings("unchecked")
+    private JSONObject getJsonObject(String key, Map<String, Object> context) throws JSONException {
+        Object value = context.get(key);
+        if (value instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) value;
+            return map.isEmpty() ? null : new JSONObject(map);
+        }
+
+        String json = getValue(key, context, null);
+        if (json == null || json.isEmpty()) return null;
+        return new JSONObject(json);
+    }
+
+    private String getValue(String key, Map<String, Object> context, String defaultValue) {
+        if (context == null) return defaultValue;
+        Object value = context.get(key);
+        if (value == null) return defaultValue;
+        return value.toString();
+    }
+
+    private JSONObject createTrace(Throwable throwable) throws JSONException {
+        JSONObject trace = new JSONObject();
+
+        JSONArray frames = new JSONArray();
+
+        StackTraceElement[] elements = throwable.getStackTrace();
+        String[] lines = rawTraceLength != 0 ? new String[elements.length] : null;
+        for (int i = elements.length - 1; i >= 0; --i) {
+            StackTraceElement element = elements[i];
+            if (lines != null) lines[i] = element.toString();
+
+            JSONObject frame = new JSONObject();
+
+            frame.put("class_name", element.getClassName());
+            frame.put("filename", element.getFileName());
+            frame.put("method", element.getMethodName());
+
+            if (element.getLineNumber() > 0) {
+                frame.put("lineno", element.getLineNumber());
+            }
+
+            frames.put(frame);
+        }
+
+        if (lines != null) trace.put("raw", rawTrace(throwable, lines));
+
+        JSONObject exceptionData = new JSONObject();
+        exceptionData.put("class", throwable.getClass().getName());
+        exceptionData.put("message", throwable.getMessage());
+
+        trace.put("frames", frames);
+        trace.put("exception", exceptionData);
+
+        return trace;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.muantech.rollbar.java;
+
+public enum Outcome {
+
+    // 2xx, the item was accepted
+    SUCCESS,
+
+    // network error, timeout, 408 or a 5xx other than 503, worth retrying later
+    TRANSIENT,
+
+    // 429 or 503, the endpoint asks to slow down and may say until when with Retry-After
+    THROTTLED,
+
+    // any other response, i.e. a bad token or a rejected payload, sending it again gives the same answer
+    PERMANENT;
+
+    public static Outcome classify(int responseCode) {
+        if (responseCode >= 200 && responseCode < 300) return SUCCESS;
+        if (responseCode == 429 || responseCode == 503) return THROTTLED;
+        if (responseCode == 408 || responseCode >= 500) return TRANSIENT;
+        return PERMANENT;
+    }
+
+    public boolean isRetryable() {
+        return this == TRANSIENT || this == THROTTLED;
+    }
+}
@@ -0,0 +1,25 @@
+package com.muantech.rollbar.java;
+
+public enum OverflowPolicy {
+
+    // reject the notification being offered
+    DROP_NEWEST,
+
+    // evict the oldest queued notification to make room
+    DROP_OLDEST,
+
+    // evict a queued notification with a lower level than the offered one, or reject the offered one
+    DROP_LOWEST_LEVEL,
+
+    // wait up to the configured timeout for room, then reject the offered notification
+    BLOCK;
+
+    public static OverflowPolicy toPolicy(String name, OverflowPolicy defaultPolicy) {
+        if (name == null || name.isEmpty()) return defaultPolicy;
+        try {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return defaultPolicy;
+        }
+    }
+}
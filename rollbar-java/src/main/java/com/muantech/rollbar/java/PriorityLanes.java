@@ -0,0 +1,237 @@
+package com.muantech.rollbar.java;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.muantech.rollbar.java.RollbarNotifier.Level;
+
+/**
+ * One {@link NotificationQueue} per level, each with its own capacity and overflow policy, so a flood of one level
+ * only ever fills its own lane.
+ *
+ * The sender drains the lanes with a weighted round robin: starting from ERROR, each lane gives up to its weight in
+ * notifications before the next one gets its turn, and empty lanes are skipped. With the default weights an ERROR
+ * waits behind at most a handful of lower level items, whatever the size of their backlog.
+ *
+ * A full lane with the DROP_LOWEST_LEVEL policy evicts across lanes: the oldest notification of the lowest lane
+ * that isn't empty is dropped, and the offered one still goes in its own lane, which holds up to the capacities of
+ * the lower lanes on top of its own. A lane only holds its level, so finding the victim takes one look at the size
+ * of each lower lane, and the notification is sent in the turn of its level.
+ */
+public class PriorityLanes {
+
+    public static final String DEFAULT_WEIGHTS = "ERROR=8,WARNING=4,INFO=2,DEBUG=1";
+
+    // highest level first
+    private final NotificationQueue[] lanes;
+    private final int[] capacities;
+    private final int[] weights;
+
+    // only touched by the sender thread
+    private int current;
+    private int credits;
+
+    private volatile Thread waitingConsumer;
+
+    public PriorityLanes(Map<Level, Integer> capacities, Map<Level, OverflowPolicy> policies, Map<Level, Integer> weights,
+            int defaultCapacity, OverflowPolicy defaultPolicy, long blockTimeout, TimeUnit unit) {
+        Level[] levels = Level.values();
+        this.lanes = new NotificationQueue[levels.length];
+        this.capacities = new int[levels.length];
+        this.weights = new int[levels.length];
+
+        for (Level level : levels) {
+            Integer capacity = capacities.get(level);
+            Integer weight = weights.get(level);
+
+            int lane = laneOf(level);
+            this.capacities[lane] = capacity != null && capacity > 0 ? capacity : defaultCapacity;
+            this.weights[lane] = weight != null ? Math.max(1, weight) : 1;
+        }
+
+        for (Level level : levels) {
+            OverflowPolicy policy = policies.get(level);
+            if (policy == null) policy = defaultPolicy;
+
+            int lane = laneOf(level);
+            // room for the notifications taking the place of lower ones
+            long room = this.capacities[lane];
+            if (policy == OverflowPolicy.DROP_LOWEST_LEVEL) {
+                for (int lower = lane + 1; lower < levels.length; lower++) {
+                    room += this.capacities[lower];
+                }
+            }
+            lanes[lane] = new NotificationQueue((int) Math.min(room, 1 << 30), policy, blockTimeout, unit);
+        }
+
+        this.credits = this.weights[0];
+    }
+
+    public boolean offer(Notification notification) {
+        int index = laneOf(notification.getLevel());
+        NotificationQueue lane = lanes[index];
+
+        boolean offered;
+        if (lane.getPolicy() == OverflowPolicy.DROP_LOWEST_LEVEL) {
+            offered = (lane.size() < capacities[index] || evictBelow(index)) && lane.tryOffer(notification);
+            if (!offered) lane.countDropped(OverflowPolicy.DROP_LOWEST_LEVEL);
+        } else {
+            offered = lane.offer(notification);
+        }
+
+        if (offered) signal();
+        return offered;
+    }
+
+    // from the lowest lane up, as the victim is of the lowest level queued
+    private boolean evictBelow(int index) {
+        for (int i = lanes.length - 1; i > index; i--) {
+            if (lanes[i].size() > 0 && lanes[i].evict()) return true;
+        }
+        return false;
+    }
+
+    // the next notification by weight, or null if every lane is empty
+    public Notification poll() {
+        for (int i = 0; i <= lanes.length; i++) {
+            if (credits > 0) {
+                Notification notification = lanes[current].poll();
+                if (notification != null) {
+                    credits--;
+                    return notification;
+                }
+            }
+            current = (current + 1) % lanes.length;
+            credits = weights[current];
+        }
+        return null;
+    }
+
+    // only one thread may wait at a time, the sender thread
+    public Notification poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Notification notification = poll();
+        if (notification != null || timeout <= 0) return notification;
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waitingConsumer = Thread.currentThread();
+        try {
+            while ((notification = poll()) == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        } finally {
+            waitingConsumer = null;
+        }
+        return notification;
+    }
+
+    // Wakes the sender up, as when a retry is due
+    public void signal() {
+        Thread consumer = waitingConsumer;
+        if (consumer != null) LockSupport.unpark(consumer);
+    }
+
+    public NotificationQueue getLane(Level level) {
+        return lanes[laneOf(level)];
+    }
+
+    // sum of the weights, the number of fresh notifications in a full round
+    public int getTotalWeight() {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        return total;
+    }
+
+    public int size() {
+        int size = 0;
+        for (NotificationQueue lane : lanes) {
+            size += lane.size();
+        }
+        return size;
+    }
+
+    public int getCapacity() {
+        int capacity = 0;
+        for (int laneCapacity : capacities) {
+            capacity += laneCapacity;
+        }
+        return capacity;
+    }
+
+    // the capacity of the lane, without the room it has for the notifications taking the place of lower ones
+    public int getCapacity(Level level) {
+        return capacities[laneOf(level)];
+    }
+
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (NotificationQueue lane : lanes) {
+            dropped += lane.getDroppedCount();
+        }
+        return dropped;
+    }
+
+    public long getDroppedCount(OverflowPolicy reason) {
+        long dropped = 0;
+        for (NotificationQueue lane : lanes) {
+            dropped += lane.getDroppedCount(reason);
+        }
+        return dropped;
+    }
+
+    private static int laneOf(Level level) {
+        return Level.values().length - 1 - level.ordinal();
+    }
+
+    // "ERROR=8,DEBUG=1", unknown levels and values that aren't numbers are ignored
+    public static Map<Level, Integer> parseLevelInts(String values) {
+        Map<Level, Integer> parsed = new HashMap<Level, Integer>();
+        for (Map.Entry<Level, String> entry : parseLevelValues(values).entrySet()) {
+            try {
+                parsed.put(entry.getKey(), Integer.valueOf(entry.getValue()));
+            } catch (NumberFormatException e) {
+                // ignored
+            }
+        }
+        return parsed;
+    }
+
+    // "DEBUG=drop-oldest,ERROR=block", unknown levels and policies are ignored
+    public static Map<Level, OverflowPolicy> parseLevelPolicies(String values) {
+        Map<Level, OverflowPolicy> parsed = new HashMap<Level, OverflowPolicy>();
+        for (Map.Entry<Level, String> entry : parseLevelValues(values).entrySet()) {
+            OverflowPolicy policy = OverflowPolicy.toPolicy(entry.getValue(), null);
+            if (policy != null) parsed.put(entry.getKey(), policy);
+        }
+        return parsed;
+    }
+
+    private static Map<Level, String> parseLevelValues(String values) {
+        Map<Level, String> parsed = new HashMap<Level, String>();
+        if (values == null || values.isEmpty()) return parsed;
+
+        for (String value : values.split(",")) {
+            String[] pair = value.split("=");
+            if (pair.length != 2) continue;
+
+            String name = pair[0].trim().toUpperCase();
+            // the Log4j names of the levels are accepted too
+            if ("WARN".equals(name)) name = "WARNING";
+            if ("FATAL".equals(name)) name = "ERROR";
+            if ("TRACE".equals(name)) name = "DEBUG";
+            try {
+                parsed.put(Level.valueOf(name), pair[1].trim());
+            } catch (IllegalArgumentException e) {
+                // ignored
+            }
+        }
+        return parsed;
+    }
+
+}
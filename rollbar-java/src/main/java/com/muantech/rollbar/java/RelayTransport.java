@@ -0,0 +1,92 @@
+package com.muantech.rollbar.java;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.status.StatusLogger;
+
+/**
+ * Hands every item to a relay on the same host as a UDP datagram, so the process never opens a connection to the
+ * endpoint. The channel is non-blocking: a datagram the socket buffer can't take right away isn't waited for.
+ *
+ * Items that can't be relayed, because they don't fit in a datagram, the socket buffer is full or the relay isn't
+ * listening, are sent to the endpoint directly. A datagram the relay loses after it was written isn't noticed.
+ */
+public class RelayTransport implements Transport {
+
+    // the largest UDP payload over IPv4
+    static final int MAX_DATAGRAM = 65507;
+
+    private static final int SEND_BUFFER = 1024 * 1024;
+
+    private final InetSocketAddress address;
+    private final DatagramChannel channel;
+
+    private final AtomicLong relayed = new AtomicLong();
+    private final AtomicLong direct = new AtomicLong();
+
+    public RelayTransport(InetSocketAddress address) throws IOException {
+        this.address = address;
+        this.channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER);
+        // connected, a relay that isn't listening shows up as an error on the next send
+        channel.connect(address);
+    }
+
+    // Parses "host:port"
+    public static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) throw new IllegalArgumentException("Expected host:port, got " + address);
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    @Override
+    public void send(HttpRequest request, Callback callback) {
+        long start = System.nanoTime();
+        if (relay(request)) {
+            relayed.incrementAndGet();
+            request.relayed(System.nanoTime() - start);
+            callback.onComplete(request, true);
+            return;
+        }
+
+        direct.incrementAndGet();
+        callback.onComplete(request, request.execute());
+    }
+
+    private boolean relay(HttpRequest request) {
+        try {
+            byte[] body = request.getWireBody();
+            if (body.length > MAX_DATAGRAM) return false;
+            return channel.write(ByteBuffer.wrap(body)) > 0;
+        } catch (IOException e) {
+            StatusLogger.getLogger().debug("Error relaying an item to " + address + ", sending it directly", e);
+            return false;
+        }
+    }
+
+    // items written to the relay socket
+    public long getRelayedCount() {
+        return relayed.get();
+    }
+
+    // items sent to the endpoint because the relay couldn't take them
+    public long getDirectCount() {
+        return direct.get();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+}
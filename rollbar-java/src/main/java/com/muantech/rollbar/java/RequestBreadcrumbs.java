@@ -0,0 +1,64 @@
+package com.muantech.rollbar.java;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Breadcrumbs of the request being served by the current thread, opened and closed by {@link RollbarFilter}.
+ *
+ * While one is open the appender records there instead of in the global buffer, so a notification only carries
+ * the log lines of its own request. The buffers are recycled through a small pool, so a request that never fails
+ * costs a poll and an offer.
+ */
+public final class RequestBreadcrumbs {
+
+    private static final int MAX_POOLED = 256;
+
+    private static final ThreadLocal<Breadcrumbs> CURRENT = new ThreadLocal<Breadcrumbs>();
+
+    private static final ConcurrentLinkedQueue<Breadcrumbs> POOL = new ConcurrentLinkedQueue<Breadcrumbs>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private static volatile int CAPACITY = RollbarAppender.DEFAULT_LOGS_LIMITS;
+
+    private RequestBreadcrumbs() {}
+
+    // false if the thread already has one open, as in a forwarded request
+    public static boolean open() {
+        if (CURRENT.get() != null) return false;
+
+        Breadcrumbs breadcrumbs = POOL.poll();
+        if (breadcrumbs != null) {
+            POOLED.decrementAndGet();
+        }
+        if (breadcrumbs == null || breadcrumbs.getCapacity() != CAPACITY) {
+            breadcrumbs = new Breadcrumbs(CAPACITY);
+        }
+        CURRENT.set(breadcrumbs);
+        return true;
+    }
+
+    // null when the thread isn't serving a request
+    public static Breadcrumbs current() {
+        return CURRENT.get();
+    }
+
+    public static void close() {
+        Breadcrumbs breadcrumbs = CURRENT.get();
+        if (breadcrumbs == null) return;
+
+        CURRENT.remove();
+        breadcrumbs.clear();
+        if (POOLED.incrementAndGet() <= MAX_POOLED) {
+            POOL.offer(breadcrumbs);
+        } else {
+            POOLED.decrementAndGet();
+        }
+    }
+
+    // number of log lines kept per request, the buffers of another size are dropped when they come back
+    static void setCapacity(int capacity) {
+        CAPACITY = Math.max(1, capacity);
+    }
+
+}
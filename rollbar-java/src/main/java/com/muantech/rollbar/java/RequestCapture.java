@@ -0,0 +1,64 @@
+package com.muantech.rollbar.java;
+
+import java.util.Enumeration;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Reads what a notification needs from the request being served. It runs on the request thread when an error is
+ * notified, never for requests that don't fail, and turns everything into plain values because the request object
+ * is recycled by the container once the response is sent.
+ *
+ * Values already in the context are kept, and no session is ever created.
+ */
+public final class RequestCapture {
+
+    private RequestCapture() {}
+
+    public static void capture(HttpServletRequest request, NotificationContext context) {
+        if (context.getUrl() == null) context.setUrl(request.getRequestURI());
+        if (context.getMethod() == null) context.setMethod(request.getMethod());
+        if (context.getQuery() == null) context.setQuery(request.getQueryString());
+        if (context.getUserIp() == null) context.setUserIp(request.getRemoteAddr());
+        if (context.getRequestId() == null) context.setRequestId(request.getHeader("X-Request-Id"));
+        if (context.getUserAgent() == null) context.setUserAgent(request.getHeader("User-Agent"));
+
+        if (context.getSessionId() == null) {
+            HttpSession session = request.getSession(false);
+            if (session != null) context.setSessionId(session.getId());
+        }
+
+        if (context.getHeaders().isEmpty() && context.getHeadersJson() == null) {
+            Enumeration<String> headerNames = request.getHeaderNames();
+            while (headerNames != null && headerNames.hasMoreElements()) {
+                String headerName = headerNames.nextElement();
+                context.putHeader(headerName, request.getHeader(headerName));
+            }
+        }
+
+        if (context.getParams().isEmpty() && context.getParamsJson() == null) {
+            for (Map.Entry<String, String[]> entry : request.getParameterMap().entrySet()) {
+                String[] values = entry.getValue();
+                // the last value wins, as it always did
+                if (values != null && values.length > 0) context.putParam(entry.getKey(), values[values.length - 1]);
+            }
+        }
+
+        Enumeration<String> attributes = request.getAttributeNames();
+        while (attributes != null && attributes.hasMoreElements()) {
+            String name = attributes.nextElement();
+            String key = "attribute." + name;
+            if (context.containsCustom(key)) continue;
+
+            Object value = request.getAttribute(name);
+            if (value instanceof String) {
+                context.put(key, (String) value);
+            } else if (value instanceof String[]) {
+                context.put(key, (String[]) value);
+            }
+        }
+    }
+
+}
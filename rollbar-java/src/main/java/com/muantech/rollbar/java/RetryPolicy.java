@@ -0,0 +1,127 @@
+package com.muantech.rollbar.java;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides whether and when a failed request is sent again, and counts what happened to every attempt.
+ *
+ * Only transient and throttled outcomes are retried. The delay is drawn uniformly between 0 and an exponential
+ * ceiling (full jitter), so the retries of a burst of failures spread out instead of coming back together, and
+ * it's never shorter than what the endpoint asked for with Retry-After, up to the maximum delay. A longer
+ * Retry-After waits the maximum delay, an endpoint can't park the sender or the retries for hours.
+ *
+ * Retries are paid from a budget fed by the live traffic: every item sent for the first time deposits a fraction of
+ * a retry, so during an outage the retries stay a fixed percentage of the items instead of multiplying them.
+ */
+public class RetryPolicy {
+
+    // the budget works in thousandths of a retry
+    private static final long RETRY_COST = 1000;
+
+    // retries available right away, so a quiet notifier can still retry its few failures
+    private static final long MIN_BALANCE = 10 * RETRY_COST;
+    private static final long MAX_BALANCE = 100 * RETRY_COST;
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final long deposit;
+
+    private final AtomicLong balance = new AtomicLong(MIN_BALANCE);
+
+    private final AtomicLongArray outcomes = new AtomicLongArray(Outcome.values().length);
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+    private final AtomicLong givenUp = new AtomicLong();
+
+    // budget is the percentage of the live items that may be retried
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, int budget) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = Math.max(1, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+        this.deposit = RETRY_COST * budget / 100;
+    }
+
+    // Items are about to be sent for the first time, alone or in a batch
+    public void onSent(int items) {
+        while (true) {
+            long current = balance.get();
+            long next = Math.min(MAX_BALANCE, current + deposit * items);
+            if (next == current || balance.compareAndSet(current, next)) return;
+        }
+    }
+
+    // Counts the outcome of an attempt
+    public void onComplete(HttpRequest request) {
+        outcomes.incrementAndGet(outcomeOf(request).ordinal());
+    }
+
+    /**
+     * Milliseconds to wait before sending the request again, or -1 if it must not be retried.
+     */
+    public long nextDelay(HttpRequest request) {
+        if (!outcomeOf(request).isRetryable()) return -1;
+
+        if (request.getAttemptNumber() >= maxAttempts) {
+            givenUp.incrementAndGet();
+            return -1;
+        }
+
+        if (!withdraw()) {
+            budgetExhausted.incrementAndGet();
+            return -1;
+        }
+
+        retries.incrementAndGet();
+        return Math.max(jitteredDelay(request.getAttemptNumber()), retryAfter(request));
+    }
+
+    // Delay before reading a source that can't drop its items again, like the spool, after failures in a row
+    public long backoff(int failures, HttpRequest request) {
+        return Math.max(jitteredDelay(failures), request == null ? 0 : retryAfter(request));
+    }
+
+    private long retryAfter(HttpRequest request) {
+        return Math.min(maxDelay, request.getRetryAfter());
+    }
+
+    private long jitteredDelay(int attempt) {
+        int shift = Math.min(Math.max(0, attempt - 1), 30);
+        long ceiling = Math.min(maxDelay, baseDelay << shift);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private boolean withdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < RETRY_COST) return false;
+            if (balance.compareAndSet(current, current - RETRY_COST)) return true;
+        }
+    }
+
+    private static Outcome outcomeOf(HttpRequest request) {
+        // a request that never got to the endpoint, i.e. rejected by a closed transport
+        return request.getOutcome() == null ? Outcome.TRANSIENT : request.getOutcome();
+    }
+
+    public long getOutcomeCount(Outcome outcome) {
+        return outcomes.get(outcome.ordinal());
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    // retries refused because the live traffic didn't pay for them
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.get();
+    }
+
+    // requests that failed every attempt
+    public long getGivenUpCount() {
+        return givenUp.get();
+    }
+
+}
@@ -0,0 +1,584 @@
+package com.muantech.rollbar.java;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.status.StatusLogger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+
+@Plugin(name = "Rollbar", category = "Core", elementType = "appender", printObject = true)
+public class RollbarAppender extends AbstractAppender {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int DEFAULT_LOGS_LIMITS = 100;
+
+    public static final int DEFAULT_DEDUP_FRAMES = 5;
+    private static final int MAX_DEDUP_WINDOWS = 1024;
+
+    private static Breadcrumbs LOG_BUFFER = new Breadcrumbs(DEFAULT_LOGS_LIMITS);
+    
+    private StatusLogger statusLogger = StatusLogger.getLogger();
+
+    private boolean enabled = true;
+    private boolean onlyThrowable = true;
+    private boolean logs = true;
+
+    private Level notifyLevel = Level.ERROR;
+
+    private String apiKey;
+    private String env;
+    private List<String> enabledEnvs = new ArrayList<String>();
+    
+    private String url = "https://api.rollbar.com/api/1/item/";
+
+    private final NotifierConfig notifierConfig;
+    // the notifier of this appender, with its own queue and stats
+    private Notifier notifier;
+
+    private long dedupWindow;
+    private int dedupFrames = DEFAULT_DEDUP_FRAMES;
+    private Deduplicator deduplicator;
+    private ScheduledFuture<?> dedupSweep;
+
+    private double rateLimit;
+    private String levelRateLimits;
+    private double samplingWatermark;
+    private Sampler sampler;
+    
+    private static ThreadLocal<ServletRequest> CURRENT_REQUEST = new ThreadLocal<>();
+
+    // set while the thread serves a request, kept out of the ThreadContext so no layout ever prints it
+    private static final ThreadLocal<Boolean> LOGGING_THREAD = new ThreadLocal<Boolean>();
+    
+    public RollbarAppender(final String name, final Filter filter, final Layout<? extends Serializable> layout,
+            final boolean ignoreExceptions, final String apiKey, final String env, final List<String> enabledEnvs) {
+        this(name, filter, layout, ignoreExceptions, apiKey, env, enabledEnvs, new NotifierConfig());
+    }
+
+    public RollbarAppender(final String name, final Filter filter, final Layout<? extends Serializable> layout,
+            final boolean ignoreExceptions, final String apiKey, final String env, final List<String> enabledEnvs,
+            final NotifierConfig notifierConfig) {
+        super(name, filter, layout, ignoreExceptions);
+        this.apiKey = apiKey;
+        this.env = env;
+        this.enabledEnvs = enabledEnvs;
+        this.notifierConfig = notifierConfig;
+    }
+    
+    @PluginFactory
+    public static RollbarAppender createAppender(@PluginAttribute("name") String name,
+                                                 @PluginAttribute("ignoreExceptions") boolean ignoreExceptions,
+                                                 @PluginElement("Layout") Layout layout,
+                                                 @PluginElement("Filters") Filter filter,
+                                                 @PluginAttribute("apiKey") String apiKey,
+                                                 @PluginAttribute("env") String env,
+                                                 @PluginAttribute("enabledEnvs") String enabledEnvString,
+                                                 @PluginAttribute(value = "queueCapacity", defaultInt = NotifierConfig.DEFAULT_QUEUE_CAPACITY) int queueCapacity,
+                                                 @PluginAttribute("overflowPolicy") String overflowPolicy,
+                                                 @PluginAttribute(value = "blockTimeout", defaultLong = NotifierConfig.DEFAULT_BLOCK_TIMEOUT) long blockTimeout,
+                                                 @PluginAttribute("laneCapacities") String laneCapacities,
+                                                 @PluginAttribute("lanePolicies") String lanePolicies,
+                                                 @PluginAttribute("laneWeights") String laneWeights,
+                                                 @PluginAttribute(value = "retryCapacity", defaultInt = NotifierConfig.DEFAULT_RETRY_CAPACITY) int retryCapacity,
+                                                 @PluginAttribute(value = "retryWeight", defaultInt = NotifierConfig.DEFAULT_RETRY_WEIGHT) int retryWeight,
+                                                 @PluginAttribute(value = "maxRetries", defaultInt = NotifierConfig.DEFAULT_MAX_RETRIES) int maxRetries,
+                                                 @PluginAttribute(value = "retryBaseDelay", defaultLong = NotifierConfig.DEFAULT_RETRY_BASE_DELAY) long retryBaseDelay,
+                                                 @PluginAttribute(value = "retryMaxDelay", defaultLong = NotifierConfig.DEFAULT_RETRY_MAX_DELAY) long retryMaxDelay,
+                                                 @PluginAttribute(value = "retryBudget", defaultInt = NotifierConfig.DEFAULT_RETRY_BUDGET) int retryBudget,
+                                                 @PluginAttribute(value = "breakerFailureRate", defaultInt = NotifierConfig.DEFAULT_BREAKER_FAILURE_RATE) int breakerFailureRate,
+                                                 @PluginAttribute(value = "breakerSlowCall", defaultLong = NotifierConfig.DEFAULT_BREAKER_SLOW_CALL) long breakerSlowCall,
+                                                 @PluginAttribute(value = "breakerOpenTime", defaultLong = NotifierConfig.DEFAULT_BREAKER_OPEN_TIME) long breakerOpenTime,
+                                                 @PluginAttribute(value = "breakerWindow", defaultInt = NotifierConfig.DEFAULT_BREAKER_WINDOW) int breakerWindow,
+                                                 @PluginAttribute("batchUrl") String batchUrl,
+                                                 @PluginAttribute(value = "batchSize", defaultInt = NotifierConfig.DEFAULT_BATCH_SIZE) int batchSize,
+                                                 @PluginAttribute(value = "batchBytes", defaultInt = NotifierConfig.DEFAULT_BATCH_BYTES) int batchBytes,
+                                                 @PluginAttribute(value = "batchLinger", defaultLong = NotifierConfig.DEFAULT_BATCH_LINGER) long batchLinger,
+                                                 @PluginAttribute(value = "gzipThreshold", defaultInt = NotifierConfig.DEFAULT_GZIP_THRESHOLD) int gzipThreshold,
+                                                 @PluginAttribute(value = "maxInFlight", defaultInt = NotifierConfig.DEFAULT_MAX_IN_FLIGHT) int maxInFlight,
+                                                 @PluginAttribute(value = "requestTimeout", defaultInt = NotifierConfig.DEFAULT_REQUEST_TIMEOUT) int requestTimeout,
+                                                 @PluginAttribute("relayAddress") String relayAddress,
+                                                 @PluginAttribute("spoolDir") String spoolDir,
+                                                 @PluginAttribute(value = "spoolMaxBytes", defaultLong = NotifierConfig.DEFAULT_SPOOL_MAX_BYTES) long spoolMaxBytes,
+                                                 @PluginAttribute(value = "spoolSegmentBytes", defaultInt = NotifierConfig.DEFAULT_SPOOL_SEGMENT_BYTES) int spoolSegmentBytes,
+                                                 @PluginAttribute(value = "spoolReplayRate", defaultInt = NotifierConfig.DEFAULT_SPOOL_REPLAY_RATE) int spoolReplayRate,
+                                                 @PluginAttribute(value = "streamingJson", defaultBoolean = true) boolean streamingJson,
+                                                 @PluginAttribute(value = "jmx", defaultBoolean = true) boolean jmx,
+                                                 @PluginAttribute(value = "shutdownTimeout", defaultLong = NotifierConfig.DEFAULT_SHUTDOWN_TIMEOUT) long shutdownTimeout,
+                                                 @PluginAttribute(value = "rawTraceLength", defaultInt = NotifierConfig.DEFAULT_RAW_TRACE_LENGTH) int rawTraceLength,
+                                                 @PluginAttribute(value = "dedupWindow", defaultLong = 0) long dedupWindow,
+                                                 @PluginAttribute(value = "dedupFrames", defaultInt = DEFAULT_DEDUP_FRAMES) int dedupFrames,
+                                                 @PluginAttribute(value = "rateLimit", defaultDouble = 0) double rateLimit,
+                                                 @PluginAttribute("levelRateLimits") String levelRateLimits,
+                                                 @PluginAttribute(value = "samplingWatermark", defaultDouble = 0) double samplingWatermark)
+    {
+        List<String> envs = new ArrayList<String>();
+        
+        if(enabledEnvString != null && !enabledEnvString.isEmpty())
+        {
+            Collections.addAll(envs, enabledEnvString.split(","));
+        }
+        
+        NotifierConfig notifierConfig = new NotifierConfig();
+        notifierConfig.setQueueCapacity(queueCapacity);
+        notifierConfig.setOverflowPolicy(OverflowPolicy.toPolicy(overflowPolicy, notifierConfig.getOverflowPolicy()));
+        notifierConfig.setBlockTimeout(blockTimeout);
+        notifierConfig.setLaneCapacities(laneCapacities);
+        notifierConfig.setLanePolicies(lanePolicies);
+        notifierConfig.setLaneWeights(laneWeights);
+        notifierConfig.setRetryCapacity(retryCapacity);
+        notifierConfig.setRetryWeight(retryWeight);
+        notifierConfig.setMaxRetries(maxRetries);
+        notifierConfig.setRetryBaseDelay(retryBaseDelay);
+        notifierConfig.setRetryMaxDelay(retryMaxDelay);
+        notifierConfig.setRetryBudget(retryBudget);
+        notifierConfig.setBreakerFailureRate(breakerFailureRate);
+        notifierConfig.setBreakerSlowCall(breakerSlowCall);
+        notifierConfig.setBreakerOpenTime(breakerOpenTime);
+        notifierConfig.setBreakerWindow(breakerWindow);
+        notifierConfig.setBatchUrl(batchUrl);
+        notifierConfig.setBatchSize(batchSize);
+        notifierConfig.setBatchBytes(batchBytes);
+        notifierConfig.setBatchLinger(batchLinger);
+        notifierConfig.setGzipThreshold(gzipThreshold);
+        notifierConfig.setMaxInFlight(maxInFlight);
+        notifierConfig.setRequestTimeout(requestTimeout);
+        notifierConfig.setRelayAddress(relayAddress);
+        notifierConfig.setSpoolDir(spoolDir);
+        notifierConfig.setSpoolMaxBytes(spoolMaxBytes);
+        notifierConfig.setSpoolSegmentBytes(spoolSegmentBytes);
+        notifierConfig.setSpoolReplayRate(spoolReplayRate);
+        notifierConfig.setStreamingJson(streamingJson);
+        notifierConfig.setJmx(jmx);
+        notifierConfig.setShutdownTimeout(shutdownTimeout);
+        notifierConfig.setRawTraceLength(rawTraceLength);
+
+        RollbarAppender appender = new RollbarAppender(name, filter, layout, ignoreExceptions, apiKey, env, envs, notifierConfig);
+        appender.setDedupWindow(dedupWindow);
+        appender.setDedupFrames(dedupFrames);
+        appender.setRateLimit(rateLimit);
+        appender.setLevelRateLimits(levelRateLimits);
+        appender.setSamplingWatermark(samplingWatermark);
+
+        return appender;
+    }
+
+    @Override
+    public void start() {
+        if (isNotifying()) startNotifier();
+        if (notifier != null && (rateLimit > 0 || (levelRateLimits != null && !levelRateLimits.isEmpty()) || samplingWatermark > 0)) {
+            sampler = new Sampler(notifier, rateLimit, Sampler.parseLevelRates(levelRateLimits), samplingWatermark);
+        }
+        if (notifier != null && dedupWindow > 0) {
+            deduplicator = new Deduplicator(notifier, dedupWindow, TimeUnit.MILLISECONDS, dedupFrames, MAX_DEDUP_WINDOWS);
+            dedupSweep = RollbarNotifier.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    deduplicator.sweep();
+                }
+            }, dedupWindow, TimeUnit.MILLISECONDS);
+        }
+        super.start();
+    }
+
+    private void startNotifier() {
+        try {
+            notifier = new Notifier(getName(), url, apiKey, env, notifierConfig);
+            // the first one started is also the notifier of the static RollbarNotifier methods
+            RollbarNotifier.adopt(notifier);
+        } catch (Exception e) {
+            statusLogger.error("Error starting the notifier of the appender " + getName(), e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (dedupSweep != null) dedupSweep.cancel(false);
+        if (deduplicator != null) deduplicator.flush();
+
+        if (notifier != null) {
+            RollbarNotifier.release(notifier);
+            notifier.close(notifierConfig.getShutdownTimeout(), TimeUnit.MILLISECONDS);
+            notifier = null;
+        }
+    }
+
+    // Disabled appenders and environments don't get a notifier
+    private boolean isNotifying() {
+        return enabled && (enabledEnvs.isEmpty() || enabledEnvs.contains(env));
+    }
+
+    @Override
+    public void append(final LogEvent event) {
+        Object flightEvent = FlightEvents.beginAppend();
+        String outcome = notify(event);
+        if (flightEvent != null) {
+            FlightEvents.commitAppend(flightEvent, event.getLevel().name(), event.getLoggerName(), outcome);
+        }
+    }
+
+    // what became of the event, for the flight recorder
+    private String notify(final LogEvent event) {
+        if (!isNotifying()) return "filtered";
+
+        // the notifier couldn't start, i.e. with a bad url
+        Notifier notifier = this.notifier;
+        if (notifier == null) return "failed";
+
+        try {
+
+            // add to the request or the LOG_BUFFER buffer, it's only formatted if a notification takes it
+            if (logs) getBreadcrumbs().add(event);
+
+            if (!hasToNotify(event.getLevel())) return "filtered";
+
+            boolean hasThrowable = thereIsThrowableIn(event);
+            if (onlyThrowable && !hasThrowable) return "filtered";
+
+            // rate limited and sampled out events stop before anything is built
+            if (sampler != null && !sampler.isSampled(event.getLevel())) return "sampled";
+
+            Throwable throwable = hasThrowable ? getThrowable(event) : null;
+
+            // repeats of an error already notified in the current window stop here
+            Deduplicator.Window window = null;
+            if (deduplicator != null) {
+                window = deduplicator.record(deduplicator.fingerprint(event.getMessage().getFormat(), throwable));
+                if (window == null) return "deduplicated";
+            }
+
+            final NotificationContext context = getContext(event);
+            final String message = event.getMessage().getFormattedMessage();
+
+            final RollbarNotifier.Level level = toNotifierLevel(event.getLevel());
+
+            if (window != null) window.fill(level, message, throwable, context.copy());
+
+            return notifier.offer(level, message, throwable, context) ? "enqueued" : "dropped";
+
+        } catch (Exception e) {
+            statusLogger.error("Error sending error notification! error=" + e.getClass().getName() + " with message=" + e.getMessage());
+            return "failed";
+        }
+
+    }
+
+    private NotificationContext getContext(final LogEvent event) {
+
+        final NotificationContext context = NotificationContext.obtain();
+
+        // the context captured with the event, the ThreadContext of this thread may belong to another request
+        Map<String, String> eventContext = event.getContextMap();
+        if (eventContext != null) context.putAll(eventContext);
+
+        // the request is only read now that there's something to notify
+        if (isLoggingThread()) {
+            ServletRequest request = RollbarAppender.getCurrentRequest();
+            if (request instanceof HttpServletRequest) RequestCapture.capture((HttpServletRequest) request, context);
+        }
+
+        if (logs) context.setLogs(getBreadcrumbs().snapshot(getLayout()));
+
+        return context;
+    }
+
+    // the lines of the current request when RollbarFilter opened a buffer for it
+    private static Breadcrumbs getBreadcrumbs() {
+        Breadcrumbs breadcrumbs = isLoggingThread() ? RequestBreadcrumbs.current() : null;
+        return breadcrumbs != null ? breadcrumbs : LOG_BUFFER;
+    }
+
+    // false when an async logger or appender hands the event over to one of its threads, which never serve a
+    // request, so the thread locals read next belong to the request that logged the event
+    private static boolean isLoggingThread() {
+        return LOGGING_THREAD.get() != null;
+    }
+
+    // Marks the thread as serving a request, until unmarkLoggingThread
+    static void markLoggingThread() {
+        LOGGING_THREAD.set(Boolean.TRUE);
+    }
+
+    static void unmarkLoggingThread() {
+        LOGGING_THREAD.remove();
+    }
+
+    public boolean hasToNotify(Level level) {
+        return level.isMoreSpecificThan(notifyLevel);
+    }
+
+    // FATAL is notified as an ERROR and TRACE as a DEBUG, custom levels as the standard one they're closest above
+    static RollbarNotifier.Level toNotifierLevel(Level level) {
+        if (level.isMoreSpecificThan(Level.ERROR)) return RollbarNotifier.Level.ERROR;
+        if (level.isMoreSpecificThan(Level.WARN)) return RollbarNotifier.Level.WARNING;
+        if (level.isMoreSpecificThan(Level.INFO)) return RollbarNotifier.Level.INFO;
+        return RollbarNotifier.Level.DEBUG;
+    }
+
+    public void setApiKey(final String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setEnv(final String env) {
+        this.env = env;
+    }
+
+    public boolean isOnlyThrowable() {
+        return onlyThrowable;
+    }
+
+    public void setOnlyThrowable(boolean onlyThrowable) {
+        this.onlyThrowable = onlyThrowable;
+    }
+
+    public void setUrl(final String url) {
+        this.url = url;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        notifierConfig.setQueueCapacity(queueCapacity);
+    }
+
+    public void setOverflowPolicy(String overflowPolicy) {
+        notifierConfig.setOverflowPolicy(OverflowPolicy.toPolicy(overflowPolicy, notifierConfig.getOverflowPolicy()));
+    }
+
+    public void setBlockTimeout(long blockTimeout) {
+        notifierConfig.setBlockTimeout(blockTimeout);
+    }
+
+    public void setLaneCapacities(String laneCapacities) {
+        notifierConfig.setLaneCapacities(laneCapacities);
+    }
+
+    public void setLanePolicies(String lanePolicies) {
+        notifierConfig.setLanePolicies(lanePolicies);
+    }
+
+    public void setLaneWeights(String laneWeights) {
+        notifierConfig.setLaneWeights(laneWeights);
+    }
+
+    public void setRetryCapacity(int retryCapacity) {
+        notifierConfig.setRetryCapacity(retryCapacity);
+    }
+
+    public void setRetryWeight(int retryWeight) {
+        notifierConfig.setRetryWeight(retryWeight);
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        notifierConfig.setMaxRetries(maxRetries);
+    }
+
+    public void setRetryBaseDelay(long retryBaseDelay) {
+        notifierConfig.setRetryBaseDelay(retryBaseDelay);
+    }
+
+    public void setRetryMaxDelay(long retryMaxDelay) {
+        notifierConfig.setRetryMaxDelay(retryMaxDelay);
+    }
+
+    public void setRetryBudget(int retryBudget) {
+        notifierConfig.setRetryBudget(retryBudget);
+    }
+
+    public void setBreakerFailureRate(int breakerFailureRate) {
+        notifierConfig.setBreakerFailureRate(breakerFailureRate);
+    }
+
+    public void setBreakerSlowCall(long breakerSlowCall) {
+        notifierConfig.setBreakerSlowCall(breakerSlowCall);
+    }
+
+    public void setBreakerOpenTime(long breakerOpenTime) {
+        notifierConfig.setBreakerOpenTime(breakerOpenTime);
+    }
+
+    public void setBreakerWindow(int breakerWindow) {
+        notifierConfig.setBreakerWindow(breakerWindow);
+    }
+
+    public void setBatchUrl(String batchUrl) {
+        notifierConfig.setBatchUrl(batchUrl);
+    }
+
+    public void setBatchSize(int batchSize) {
+        notifierConfig.setBatchSize(batchSize);
+    }
+
+    public void setBatchBytes(int batchBytes) {
+        notifierConfig.setBatchBytes(batchBytes);
+    }
+
+    public void setBatchLinger(long batchLinger) {
+        notifierConfig.setBatchLinger(batchLinger);
+    }
+
+    public void setGzipThreshold(int gzipThreshold) {
+        notifierConfig.setGzipThreshold(gzipThreshold);
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        notifierConfig.setMaxInFlight(maxInFlight);
+    }
+
+    public void setRequestTimeout(int requestTimeout) {
+        notifierConfig.setRequestTimeout(requestTimeout);
+    }
+
+    public void setRelayAddress(String relayAddress) {
+        notifierConfig.setRelayAddress(relayAddress);
+    }
+
+    public void setSpoolDir(String spoolDir) {
+        notifierConfig.setSpoolDir(spoolDir);
+    }
+
+    public void setSpoolMaxBytes(long spoolMaxBytes) {
+        notifierConfig.setSpoolMaxBytes(spoolMaxBytes);
+    }
+
+    public void setSpoolSegmentBytes(int spoolSegmentBytes) {
+        notifierConfig.setSpoolSegmentBytes(spoolSegmentBytes);
+    }
+
+    public void setSpoolReplayRate(int spoolReplayRate) {
+        notifierConfig.setSpoolReplayRate(spoolReplayRate);
+    }
+
+    public void setStreamingJson(boolean streamingJson) {
+        notifierConfig.setStreamingJson(streamingJson);
+    }
+
+    public void setJmx(boolean jmx) {
+        notifierConfig.setJmx(jmx);
+    }
+
+    public void setShutdownTimeout(long shutdownTimeout) {
+        notifierConfig.setShutdownTimeout(shutdownTimeout);
+    }
+
+    public void setRawTraceLength(int rawTraceLength) {
+        notifierConfig.setRawTraceLength(rawTraceLength);
+    }
+
+    // milliseconds during which repeats of a notified error are only counted, 0 disables the de-duplication
+    public void setDedupWindow(long dedupWindow) {
+        if (dedupWindow >= 0) this.dedupWindow = dedupWindow;
+    }
+
+    // number of top stack frames that are part of an error fingerprint
+    public void setDedupFrames(int dedupFrames) {
+        if (dedupFrames >= 0) this.dedupFrames = dedupFrames;
+    }
+
+    // null before the appender starts and after it stops
+    public Notifier getNotifier() {
+        return notifier;
+    }
+
+    public long getSuppressedCount() {
+        return deduplicator == null ? 0 : deduplicator.getSuppressedCount();
+    }
+
+    // events per second notified at most, 0 for no limit
+    public void setRateLimit(double rateLimit) {
+        if (rateLimit >= 0) this.rateLimit = rateLimit;
+    }
+
+    // events per second notified at most for each level, i.e. "ERROR=50,WARN=5"
+    public void setLevelRateLimits(String levelRateLimits) {
+        this.levelRateLimits = levelRateLimits;
+    }
+
+    // fraction of the queue capacity past which events are sampled, 0 disables the sampling
+    public void setSamplingWatermark(double samplingWatermark) {
+        if (samplingWatermark >= 0 && samplingWatermark <= 1) this.samplingWatermark = samplingWatermark;
+    }
+
+    public long getRateLimitedCount() {
+        return sampler == null ? 0 : sampler.getRateLimitedCount();
+    }
+
+    public long getSampledOutCount() {
+        return sampler == null ? 0 : sampler.getSampledOutCount();
+    }
+
+    public Level getNotifyLevel() {
+        return notifyLevel;
+    }
+
+    public void setLevel(String notifyLevel) {
+        this.notifyLevel = Level.toLevel(notifyLevel);
+    }
+
+    public boolean isLogs() {
+        return logs;
+    }
+
+    public void setLogs(boolean logs) {
+        this.logs = logs;
+    }
+
+    public void setLimit(int limit) {
+        RollbarAppender.LOG_BUFFER = new Breadcrumbs(limit);
+        RequestBreadcrumbs.setCapacity(limit);
+    }
+
+    private boolean thereIsThrowableIn(LogEvent loggingEvent) {
+        return loggingEvent.getThrown() != null || loggingEvent.getMessage() instanceof Throwable;
+    }
+
+    private Throwable getThrowable(final LogEvent loggingEvent) {
+        Throwable throwable = loggingEvent.getThrown();
+        if (throwable != null) return throwable;
+
+        Object message = loggingEvent.getMessage();
+        if (message instanceof Throwable) {
+            return (Throwable) message;
+        } else if (message instanceof String) {
+            return new Exception((String) message);
+        }
+
+        return null;
+    }
+
+    public static ServletRequest getCurrentRequest()
+    {
+        return CURRENT_REQUEST.get();
+    }
+    
+    // the events logged by this thread from now on belong to the request, until it's set to null
+    public static void setCurrentRequest(ServletRequest request)
+    {
+        CURRENT_REQUEST.set(request);
+        if (request != null) {
+            markLoggingThread();
+        } else {
+            unmarkLoggingThread();
+        }
+    }
+
+}
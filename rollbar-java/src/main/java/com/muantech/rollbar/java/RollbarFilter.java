@@ -0,0 +1,109 @@
+package com.muantech.rollbar.java;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Gives the notifications the details of the request being served.
+ *
+ * By default (init-param capture=lazy) it only keeps a reference to the request, and the headers, parameters and
+ * session id are read when an error is actually notified. capture=eager copies them into the ThreadContext for
+ * every request, as the first versions did. The filter never creates a session.
+ */
+public class RollbarFilter implements Filter {
+
+    private static final String[] CONTEXT_KEYS = { "url", "method", "query", "user-ip", "sessionId", "requestId", "headers", "params" };
+
+    private boolean eager;
+
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        eager = "eager".equalsIgnoreCase(config.getInitParameter("capture"));
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
+
+        // a nested dispatch (forward, include, error) finds the breadcrumbs open, and leaves the outer request as
+        // it found it
+        boolean outermost = RequestBreadcrumbs.open();
+        ServletRequest previous = RollbarAppender.getCurrentRequest();
+        // the appender may read the request and its breadcrumbs on this thread
+        if (outermost) RollbarAppender.markLoggingThread();
+        try {
+            if (servletRequest instanceof HttpServletRequest) {
+                if (!eager) {
+                    RollbarAppender.setCurrentRequest(servletRequest);
+                } else if (outermost) {
+                    putInThreadContext((HttpServletRequest) servletRequest);
+                }
+            }
+            filterChain.doFilter(servletRequest, servletResponse);
+        } finally {
+            if (!eager) RollbarAppender.setCurrentRequest(outermost ? null : previous);
+            if (outermost) {
+                if (eager) {
+                    for (String key : CONTEXT_KEYS) {
+                        ThreadContext.remove(key);
+                    }
+                }
+                RequestBreadcrumbs.close();
+                RollbarAppender.unmarkLoggingThread();
+            }
+        }
+
+    }
+
+    private void putInThreadContext(HttpServletRequest httpRequest) {
+        ThreadContext.put("url", httpRequest.getRequestURI());
+        ThreadContext.put("method", httpRequest.getMethod());
+        ThreadContext.put("query", httpRequest.getQueryString());
+        ThreadContext.put("user-ip", httpRequest.getRemoteAddr());
+        HttpSession session = httpRequest.getSession(false);
+        if (session != null) ThreadContext.put("sessionId", session.getId());
+        ThreadContext.put("requestId", httpRequest.getHeader("X-Request-Id"));
+
+        // Headers
+        JSONObject headersData = new JSONObject();
+        Enumeration<String> headerNames = httpRequest.getHeaderNames();
+        while (headerNames.hasMoreElements()) {
+            String headerName = headerNames.nextElement();
+            headersData.put(headerName, httpRequest.getHeader(headerName));
+        }
+        if (headersData.length() > 0) ThreadContext.put("headers", headersData.toString());
+
+        // Request Params
+        Map<String, String[]> params = httpRequest.getParameterMap();
+
+        if (params != null) {
+            JSONObject paramsData = new JSONObject();
+            for (Entry<String, String[]> entry : params.entrySet()) {
+                for(String entryValue : entry.getValue())
+                {
+                    paramsData.put(entry.getKey(), entryValue);
+                }
+            }
+            if (paramsData.length() > 0) {
+                ThreadContext.put("params", paramsData.toString());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {}
+
+}
@@ -0,0 +1,275 @@
+package com.muantech.rollbar.java;
+
+import org.apache.logging.log4j.status.StatusLogger;
+import org.json.JSONException;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default notifier of the JVM behind static methods. It's the one created by init, or else the one of the
+ * first appender started, so the application can notify through it without holding a {@link Notifier}.
+ */
+public class RollbarNotifier {
+
+    public static final int MAX_RETRIES = 5;
+
+    private static final List<CircuitBreaker.Listener> CIRCUIT_LISTENERS = new CopyOnWriteArrayList<CircuitBreaker.Listener>();
+
+    private static volatile Notifier DEFAULT;
+    // false when the default belongs to an appender, which closes it
+    private static boolean OWNED;
+    // notifiers of the started appenders, in the order they started
+    private static final List<Notifier> CANDIDATES = new ArrayList<Notifier>();
+
+    public enum Level {
+        DEBUG, INFO, WARNING, ERROR
+    }
+
+    public static void init(String urlString, String apiKey, String env) throws JSONException, UnknownHostException {
+        init(urlString, apiKey, env, new NotifierConfig());
+    }
+
+    /**
+     * Creates the default notifier. Initializing again replaces it, the previous one is closed within its shutdown
+     * timeout unless it belongs to an appender.
+     */
+    public static synchronized void init(String urlString, String apiKey, String env, NotifierConfig config) throws JSONException,
+            UnknownHostException {
+        Notifier notifier = new Notifier(null, urlString, apiKey, env, config, CIRCUIT_LISTENERS);
+        Notifier previous = DEFAULT;
+        boolean owned = OWNED;
+
+        DEFAULT = notifier;
+        OWNED = true;
+
+        if (previous == null) return;
+        if (owned) {
+            previous.close(config.getShutdownTimeout(), TimeUnit.MILLISECONDS);
+        } else {
+            detachListeners(previous);
+        }
+    }
+
+    // The notifier of an appender becomes the default when there's none yet
+    static synchronized void adopt(Notifier notifier) {
+        CANDIDATES.add(notifier);
+        if (DEFAULT == null) makeDefault(notifier);
+    }
+
+    // The appender is closing its notifier, the notifier of another appender takes over as the default
+    static synchronized void release(Notifier notifier) {
+        CANDIDATES.remove(notifier);
+        if (DEFAULT != notifier) return;
+
+        detachListeners(notifier);
+        DEFAULT = null;
+        if (!CANDIDATES.isEmpty()) makeDefault(CANDIDATES.get(0));
+    }
+
+    private static void makeDefault(Notifier notifier) {
+        for (CircuitBreaker.Listener listener : CIRCUIT_LISTENERS) {
+            notifier.addCircuitListener(listener);
+        }
+        DEFAULT = notifier;
+        OWNED = false;
+    }
+
+    private static void detachListeners(Notifier notifier) {
+        for (CircuitBreaker.Listener listener : CIRCUIT_LISTENERS) {
+            notifier.removeCircuitListener(listener);
+        }
+    }
+
+    // null before init and before an appender started
+    public static Notifier getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Sends everything notified so far to the default notifier, see {@link Notifier#flush(long, TimeUnit)}.
+     *
+     * @return false if the timeout expired first
+     */
+    public static boolean flush(long timeout, TimeUnit unit) {
+        Notifier notifier = DEFAULT;
+        return notifier == null || notifier.flush(timeout, unit);
+    }
+
+    /**
+     * Closes the default notifier, see {@link Notifier#close(long, TimeUnit)}. The notifier can be initialized again
+     * afterwards.
+     *
+     * @return false if some items couldn't be sent in time
+     */
+    public static synchronized boolean close(long timeout, TimeUnit unit) {
+        Notifier notifier = DEFAULT;
+        if (notifier == null) return true;
+
+        DEFAULT = null;
+        CANDIDATES.remove(notifier);
+        return notifier.close(timeout, unit);
+    }
+
+    public static void notify(String message) {
+        notify(Level.INFO, message, null, (NotificationContext) null);
+    }
+
+    public static void notify(String message, Map<String, Object> context) {
+        notify(Level.INFO, message, context);
+    }
+
+    public static void notify(Level level, String message) {
+        notify(level, message, null, (NotificationContext) null);
+    }
+
+    public static void notify(Level level, String message, Map<String, Object> context) {
+        notify(level, message, null, context);
+    }
+
+    public static void notify(Throwable throwable) {
+        notify(Level.ERROR, null, throwable, (NotificationContext) null);
+    }
+
+    public static void notify(Throwable throwable, Map<String, Object> context) {
+        notify(Level.ERROR, throwable, context);
+    }
+
+    public static void notify(String message, Throwable throwable) {
+        notify(Level.ERROR, message, throwable, (NotificationContext) null);
+    }
+
+    public static void notify(String message, Throwable throwable, Map<String, Object> context) {
+        notify(Level.ERROR, message, throwable, context);
+    }
+
+    public static void notify(Level level, Throwable throwable) {
+        notify(level, null, throwable, (NotificationContext) null);
+    }
+
+    public static void notify(Level level, Throwable throwable, Map<String, Object> context) {
+        notify(level, null, throwable, context);
+    }
+
+    public static void notify(final Level level, final String message, final Throwable throwable, final Map<String, Object> context) {
+        notify(level, message, throwable, NotificationContext.fromMap(context));
+    }
+
+    public static void notify(String message, NotificationContext context) {
+        notify(Level.INFO, message, null, context);
+    }
+
+    public static void notify(Throwable throwable, NotificationContext context) {
+        notify(Level.ERROR, null, throwable, context);
+    }
+
+    public static void notify(String message, Throwable throwable, NotificationContext context) {
+        notify(Level.ERROR, message, throwable, context);
+    }
+
+    /**
+     * The context is owned by the notifier from now on, it's recycled once the item is serialized.
+     */
+    public static void notify(final Level level, final String message, final Throwable throwable, final NotificationContext context) {
+        Notifier notifier = DEFAULT;
+        if (notifier == null) {
+            StatusLogger.getLogger().error("RollbarNotifier is not initialized, dropping the notification.");
+            return;
+        }
+        notifier.offer(level, message, throwable, context);
+    }
+
+    // Everything the default notifier measures, read at once, null before init
+    public static NotifierStats.Snapshot getStats() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? null : notifier.getStats();
+    }
+
+    public static int getQueueSize() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getQueueSize();
+    }
+
+    public static int getQueueCapacity() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getQueueCapacity();
+    }
+
+    public static long getDroppedCount() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getDroppedCount();
+    }
+
+    public static long getDroppedCount(OverflowPolicy reason) {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getDroppedCount(reason);
+    }
+
+    // Periodic housekeeping of the appenders, run on the threads shared by the notifiers
+    static ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period, TimeUnit unit) {
+        return SharedResources.EXECUTOR.scheduleAtFixedRate(task, period, period, unit);
+    }
+
+    public static long getOutcomeCount(Outcome outcome) {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getOutcomeCount(outcome);
+    }
+
+    public static long getRetryCount() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getRetryCount();
+    }
+
+    // retries refused because the live traffic didn't pay for them
+    public static long getRetryBudgetExhaustedCount() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getRetryBudgetExhaustedCount();
+    }
+
+    // requests dropped after failing every attempt
+    public static long getGivenUpCount() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getGivenUpCount();
+    }
+
+    // CLOSED when there is no circuit breaker
+    public static CircuitBreaker.State getCircuitState() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? CircuitBreaker.State.CLOSED : notifier.getCircuitState();
+    }
+
+    // requests held back while the circuit breaker was open
+    public static long getCircuitRejectedCount() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getCircuitRejectedCount();
+    }
+
+    // Told about every state change of the circuit breaker of the default notifier, it can be added before init
+    public static synchronized void addCircuitListener(CircuitBreaker.Listener listener) {
+        CIRCUIT_LISTENERS.add(listener);
+        // the one created by init already shares the list
+        if (DEFAULT != null && !OWNED) DEFAULT.addCircuitListener(listener);
+    }
+
+    public static synchronized void removeCircuitListener(CircuitBreaker.Listener listener) {
+        CIRCUIT_LISTENERS.remove(listener);
+        if (DEFAULT != null && !OWNED) DEFAULT.removeCircuitListener(listener);
+    }
+
+    // retries that came due with the retry lane full
+    public static long getDroppedRetryCount() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getDroppedRetryCount();
+    }
+
+    public static long getSpoolEvictedCount() {
+        Notifier notifier = DEFAULT;
+        return notifier == null ? 0 : notifier.getSpoolEvictedCount();
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.muantech.rollbar.java;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Level;
+
+/**
+ * Decides, before anything is built, whether a notifiable event is sent.
+ *
+ * Events go through a per-level and a global token bucket, and only take a token from both or from neither. Past
+ * the watermark of the lane of their level the notifier is falling behind on that level and its events are also
+ * sampled, with a rate going down as the lane fills up. ERROR and above are sampled at that rate, lower levels at
+ * its square, and FATAL is never sampled out.
+ */
+public class Sampler {
+
+    private static final double MIN_SAMPLING_RATE = 0.01;
+
+    private final Notifier notifier;
+    private final TokenBucket global;
+    private final Map<Level, TokenBucket> levels;
+    private final double watermark;
+
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+
+    // watermark is the fraction of the capacity of a lane where sampling starts, 0 disables it
+    public Sampler(Notifier notifier, double globalRate, Map<Level, Double> levelRates, double watermark) {
+        this(notifier, globalRate, levelRates, watermark, TokenBucket.SYSTEM_CLOCK);
+    }
+
+    Sampler(Notifier notifier, double globalRate, Map<Level, Double> levelRates, double watermark, TokenBucket.Clock clock) {
+        this.notifier = notifier;
+        this.global = globalRate > 0 ? new TokenBucket(globalRate, burst(globalRate), clock) : null;
+
+        this.levels = new HashMap<Level, TokenBucket>();
+        for (Map.Entry<Level, Double> entry : levelRates.entrySet()) {
+            if (entry.getValue() > 0) {
+                levels.put(entry.getKey(), new TokenBucket(entry.getValue(), burst(entry.getValue()), clock));
+            }
+        }
+
+        this.watermark = watermark;
+    }
+
+    public boolean isSampled(Level level) {
+        TokenBucket bucket = levels.get(level);
+        if (bucket != null && !bucket.tryAcquire()) {
+            rateLimited.incrementAndGet();
+            return false;
+        }
+        if (global != null && !global.tryAcquire()) {
+            // the level doesn't pay for an event that isn't sent
+            if (bucket != null) bucket.release();
+            rateLimited.incrementAndGet();
+            return false;
+        }
+
+        if (watermark <= 0 || level == Level.FATAL) return true;
+
+        double rate = samplingRate(RollbarAppender.toNotifierLevel(level));
+        if (!level.isMoreSpecificThan(Level.ERROR)) rate *= rate;
+        if (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate) return true;
+
+        sampledOut.incrementAndGet();
+        return false;
+    }
+
+    // 1 up to the watermark, then down to the minimum as the lane gets full, the other lanes don't take its events
+    double samplingRate(RollbarNotifier.Level level) {
+        int capacity = notifier.getQueueCapacity(level);
+        if (capacity <= 0) return 1;
+
+        double fill = (double) notifier.getQueueSize(level) / capacity;
+        if (watermark >= 1 || fill <= watermark) return 1;
+
+        return Math.max(MIN_SAMPLING_RATE, (1 - fill) / (1 - watermark));
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    public long getSampledOutCount() {
+        return sampledOut.get();
+    }
+
+    // Parses "ERROR=50,WARN=5" into rates per level, ignoring what can't be read
+    public static Map<Level, Double> parseLevelRates(String rates) {
+        Map<Level, Double> parsed = new HashMap<Level, Double>();
+        if (rates == null || rates.isEmpty()) return parsed;
+
+        for (String rate : rates.split(",")) {
+            String[] pair = rate.split("=");
+            if (pair.length != 2) continue;
+
+            Level level = Level.toLevel(pair[0].trim(), null);
+            if (level == null) continue;
+
+            try {
+                parsed.put(level, Double.valueOf(pair[1].trim()));
+            } catch (NumberFormatException e) {
+                // ignored
+            }
+        }
+        return parsed;
+    }
+
+    // a second worth of events may come at once
+    private static int burst(double rate) {
+        return (int) Math.max(1, Math.ceil(rate));
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.muantech.rollbar.java;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What every notifier of the JVM shares: the scheduler of retries and housekeeping, and the transports.
+ *
+ * Transports are counted by the notifiers using them, those asking for the same window and timeout get the same one
+ * and it's closed when the last of them releases it. The keep-alive connections are pooled by HttpURLConnection for
+ * the whole JVM anyway.
+ */
+final class SharedResources {
+
+    static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            // the notifier never keeps the JVM alive, the shutdown hook gives it time to send what's left
+            thread.setDaemon(true);
+            thread.setName("RollbarNotifier-" + new Random().nextInt(100));
+            return thread;
+        }
+    };
+
+    static final ScheduledExecutorService EXECUTOR = Executors.newScheduledThreadPool(2, THREAD_FACTORY);
+
+    private static final Transport BLOCKING_TRANSPORT = new BlockingTransport();
+
+    private static final Map<String, Shared> TRANSPORTS = new HashMap<String, Shared>();
+
+    private SharedResources() {
+    }
+
+    // a maxInFlight of 1 sends on the sender thread
+    static synchronized Transport acquireTransport(int maxInFlight, int requestTimeout) {
+        if (maxInFlight <= 1) return BLOCKING_TRANSPORT;
+
+        String key = maxInFlight + "/" + requestTimeout;
+        Shared shared = TRANSPORTS.get(key);
+        if (shared == null) {
+            shared = new Shared(new AsyncTransport(maxInFlight, requestTimeout, TimeUnit.MILLISECONDS, THREAD_FACTORY, EXECUTOR));
+            TRANSPORTS.put(key, shared);
+        }
+        shared.users++;
+        return shared.transport;
+    }
+
+    // one socket per relay address
+    static synchronized Transport acquireRelayTransport(String address) throws IOException {
+        String key = "relay/" + address;
+        Shared shared = TRANSPORTS.get(key);
+        if (shared == null) {
+            shared = new Shared(new RelayTransport(RelayTransport.parseAddress(address)));
+            TRANSPORTS.put(key, shared);
+        }
+        shared.users++;
+        return shared.transport;
+    }
+
+    static synchronized void releaseTransport(Transport transport) {
+        for (Map.Entry<String, Shared> entry : TRANSPORTS.entrySet()) {
+            Shared shared = entry.getValue();
+            if (shared.transport != transport) continue;
+
+            if (--shared.users == 0) {
+                TRANSPORTS.remove(entry.getKey());
+                transport.close();
+            }
+            return;
+        }
+    }
+
+    private static class Shared {
+
+        private final Transport transport;
+        private int users;
+
+        Shared(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+}
@@ -0,0 +1,317 @@
+package com.muantech.rollbar.java;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.TreeMap;
+
+/**
+ * Append-only log of serialized items on disk, split in memory-mapped segments of a fixed size.
+ *
+ * Records are written as a length followed by the payload, the length last so a record torn by a crash reads as
+ * the end of the data. The reader works on a cursor that only becomes durable with {@link #commit()}, so whatever
+ * wasn't acknowledged is read again after {@link #rewind()} or a restart. Nothing is ever forced to disk, the page
+ * cache takes care of it and the writer never pays for an fsync.
+ *
+ * When the segments exceed the size cap the oldest one is deleted, read or not.
+ *
+ * The directory is locked while the spool is open, so no other spool, in this process or another, maps the same
+ * segments. A crashed process loses its lock with it.
+ */
+public class Spool {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String OFFSET_FILE = "spool.offset";
+    private static final String LOCK_FILE = "spool.lock";
+
+    private static final int HEADER = 4;
+    private static final int END_OF_SEGMENT = -1;
+
+    private final File directory;
+    private final FileChannel lockChannel;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+    private Segment writeSegment;
+
+    private long readSegment;
+    private int readPosition;
+
+    private long committedSegment;
+    private int committedPosition;
+    private final MappedByteBuffer offset;
+
+    // everything before this position was written by a previous process
+    private final long replayEndSegment;
+    private final int replayEndPosition;
+
+    private long evictedCount;
+    private boolean closed;
+
+    public Spool(File directory, int segmentSize, long maxBytes) throws IOException {
+        if (segmentSize <= HEADER) throw new IllegalArgumentException("segmentSize is too small");
+        if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Can't create the spool directory " + directory);
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.max(2, maxBytes / segmentSize);
+        this.lockChannel = lock(new File(directory, LOCK_FILE));
+
+        try {
+            for (File file : listSegments()) {
+                long id = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+                segments.put(id, new Segment(id, map(file, segmentSize)));
+            }
+
+            if (segments.isEmpty()) {
+                writeSegment = newSegment(0);
+            } else {
+                writeSegment = segments.lastEntry().getValue();
+                writeSegment.position = findEnd(writeSegment.buffer);
+            }
+
+            offset = map(new File(directory, OFFSET_FILE), 12);
+            committedSegment = offset.getLong(0);
+            committedPosition = offset.getInt(8);
+            if (!segments.containsKey(committedSegment)) {
+                committedSegment = segments.firstKey();
+                committedPosition = 0;
+            }
+
+            readSegment = committedSegment;
+            readPosition = committedPosition;
+
+            replayEndSegment = writeSegment.id;
+            replayEndPosition = writeSegment.position;
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    // false when the payload can never fit in a segment
+    public synchronized boolean append(byte[] payload) throws IOException {
+        if (closed) throw new IOException("The spool at " + directory + " is closed");
+
+        int size = HEADER + payload.length;
+        if (size > segmentSize) return false;
+
+        if (writeSegment.position + size > segmentSize) {
+            if (writeSegment.position + HEADER <= segmentSize) {
+                writeSegment.buffer.putInt(writeSegment.position, END_OF_SEGMENT);
+            }
+            writeSegment = newSegment(writeSegment.id + 1);
+            evictIfNeeded();
+        }
+
+        ByteBuffer buffer = writeSegment.buffer.duplicate();
+        // through Buffer, ByteBuffer.position(int) only exists from Java 9
+        ((Buffer) buffer).position(writeSegment.position + HEADER);
+        buffer.put(payload);
+        writeSegment.buffer.putInt(writeSegment.position, payload.length);
+        writeSegment.position += size;
+        return true;
+    }
+
+    // The next record after the read cursor, or null if the reader caught up with the writer
+    public synchronized byte[] next() {
+        if (closed) return null;
+
+        while (true) {
+            Segment segment = segments.get(readSegment);
+            if (segment == null) {
+                readSegment = segments.firstKey();
+                readPosition = 0;
+                continue;
+            }
+
+            if (segment == writeSegment) {
+                if (readPosition >= segment.position) return null;
+            } else if (readPosition + HEADER > segmentSize || segment.buffer.getInt(readPosition) <= 0) {
+                readSegment = segments.higherKey(readSegment);
+                readPosition = 0;
+                continue;
+            }
+
+            int length = segment.buffer.getInt(readPosition);
+            byte[] payload = new byte[length];
+            ByteBuffer buffer = segment.buffer.duplicate();
+            ((Buffer) buffer).position(readPosition + HEADER);
+            buffer.get(payload);
+
+            readPosition += HEADER + length;
+            return payload;
+        }
+    }
+
+    // Makes the read cursor durable and deletes the segments left behind
+    public synchronized void commit() {
+        if (closed) return;
+
+        committedSegment = readSegment;
+        committedPosition = readPosition;
+        offset.putLong(0, committedSegment);
+        offset.putInt(8, committedPosition);
+
+        while (segments.firstKey() < committedSegment) {
+            delete(segments.pollFirstEntry().getValue());
+        }
+    }
+
+    // Moves the read cursor back to the last commit, the records read since then will be read again
+    public synchronized void rewind() {
+        if (closed) return;
+
+        if (segments.containsKey(committedSegment)) {
+            readSegment = committedSegment;
+            readPosition = committedPosition;
+        } else {
+            readSegment = segments.firstKey();
+            readPosition = 0;
+        }
+    }
+
+    // true while the reader is still behind the records found on disk at startup
+    public synchronized boolean isReplaying() {
+        return readSegment < replayEndSegment || (readSegment == replayEndSegment && readPosition < replayEndPosition);
+    }
+
+    public synchronized boolean isEmpty() {
+        return readSegment == writeSegment.id && readPosition >= writeSegment.position;
+    }
+
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    // Releases the directory to the next spool, the mappings go once they are collected
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        segments.clear();
+        try {
+            // closing the channel releases its lock
+            lockChannel.close();
+        } catch (IOException e) {
+            // released anyway when the process exits
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.pollFirstEntry().getValue();
+
+            if (oldest.id >= committedSegment) {
+                int from = oldest.id == committedSegment ? committedPosition : 0;
+                evictedCount += countRecords(oldest.buffer, from);
+            }
+            if (oldest.id >= readSegment) {
+                readSegment = segments.firstKey();
+                readPosition = 0;
+            }
+            if (oldest.id >= committedSegment) {
+                committedSegment = segments.firstKey();
+                committedPosition = 0;
+                offset.putLong(0, committedSegment);
+                offset.putInt(8, committedPosition);
+            }
+
+            delete(oldest);
+        }
+    }
+
+    private Segment newSegment(long id) throws IOException {
+        Segment segment = new Segment(id, map(segmentFile(id), segmentSize));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void delete(Segment segment) {
+        // the mapping stays valid until it's collected, the file can go right away
+        if (!segmentFile(segment.id).delete()) segmentFile(segment.id).deleteOnExit();
+    }
+
+    private int findEnd(MappedByteBuffer buffer) {
+        int position = 0;
+        while (position + HEADER <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER + length > segmentSize) break;
+            position += HEADER + length;
+        }
+        return position;
+    }
+
+    private int countRecords(MappedByteBuffer buffer, int from) {
+        int count = 0;
+        int position = from;
+        while (position + HEADER <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER + length > segmentSize) break;
+            position += HEADER + length;
+            count++;
+        }
+        return count;
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format("%020d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private File[] listSegments() {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        return files == null ? new File[0] : files;
+    }
+
+    // the channel holding the lock of the directory, until it's closed
+    private static FileChannel lock(File file) throws IOException {
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // held by another spool of this process
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("The spool at " + file.getParent() + " is used by another notifier");
+        }
+        return channel;
+    }
+
+    private static MappedByteBuffer map(File file, int size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // the mapping outlives the channel
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static class Segment {
+
+        final long id;
+        final MappedByteBuffer buffer;
+        int position;
+
+        Segment(long id, MappedByteBuffer buffer) {
+            this.id = id;
+            this.buffer = buffer;
+        }
+    }
+
+}
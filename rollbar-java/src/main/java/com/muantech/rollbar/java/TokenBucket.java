@@ -0,0 +1,59 @@
+package com.muantech.rollbar.java;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, kept as the theoretical arrival time of the next event: every admitted event pushes it
+ * one interval further, and an event is refused when that would put it more than a burst ahead of now.
+ */
+public class TokenBucket {
+
+    interface Clock {
+
+        long nanoTime();
+    }
+
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private final long interval;
+    private final long burst;
+    private final Clock clock;
+
+    private final AtomicLong nextFree;
+
+    // rate events per second, up to burst events at once
+    public TokenBucket(double rate, int burst) {
+        this(rate, burst, SYSTEM_CLOCK);
+    }
+
+    TokenBucket(double rate, int burst, Clock clock) {
+        if (rate <= 0) throw new IllegalArgumentException("rate must be positive");
+
+        this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        this.burst = Math.max(1, burst) * interval;
+        this.clock = clock;
+        this.nextFree = new AtomicLong(clock.nanoTime());
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            long now = clock.nanoTime();
+            long current = nextFree.get();
+            long next = Math.max(current, now) + interval;
+            if (next - now > burst) return false;
+            if (nextFree.compareAndSet(current, next)) return true;
+        }
+    }
+
+    // Gives back the token of an event admitted but not sent after all
+    public void release() {
+        nextFree.addAndGet(-interval);
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.muantech.rollbar.java;
+
+/**
+ * Sends prepared requests to the Rollbar endpoint. Implementations decide whether the request is executed on the
+ * calling thread or handed over, but the callback is always invoked exactly once per request.
+ */
+public interface Transport {
+
+    void send(HttpRequest request, Callback callback);
+
+    void close();
+
+    interface Callback {
+
+        // success is false when the request failed, request.getOutcome() tells whether it's worth a retry
+        void onComplete(HttpRequest request, boolean success);
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.muantech.rollbar.java;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The events behind FlightEvents. They carry the thread and the stack trace like any JFR event, and are disabled
+ * until a recording enables them, i.e. with com.muantech.rollbar.Append#enabled=true.
+ *
+ * The event types are looked up once, so while an event is disabled starting it is a volatile read and nothing is
+ * allocated, which matters on the append path.
+ */
+final class JfrFlightEvents extends FlightEvents {
+
+    private static final EventType APPEND = EventType.getEventType(Append.class);
+    private static final EventType BUILD = EventType.getEventType(Build.class);
+    private static final EventType HTTP = EventType.getEventType(Http.class);
+
+    @Override
+    Object startAppend() {
+        if (!APPEND.isEnabled()) return null;
+        Append event = new Append();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endAppend(Object started, String level, String logger, String outcome) {
+        Append event = (Append) started;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.level = level;
+        event.logger = logger;
+        event.outcome = outcome;
+        event.commit();
+    }
+
+    @Override
+    Object startBuild() {
+        if (!BUILD.isEnabled()) return null;
+        Build event = new Build();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endBuild(Object started, Notification notification, boolean streaming, int payloadSize) {
+        Build event = (Build) started;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.level = notification.getLevel().name();
+        event.frames = countFrames(notification.getThrowable());
+        event.payloadSize = payloadSize;
+        event.streaming = streaming;
+        event.commit();
+    }
+
+    @Override
+    Object startHttp() {
+        if (!HTTP.isEnabled()) return null;
+        Http event = new Http();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endHttp(Object started, HttpRequest request) {
+        Http event = (Http) started;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.url = request.getUrl().toString();
+        event.status = request.getResponseCode();
+        event.attempt = request.getAttemptNumber();
+        event.outcome = request.getOutcome() == null ? null : request.getOutcome().name();
+        event.commit();
+    }
+
+    @Name("com.muantech.rollbar.Append")
+    @Label("Rollbar Append")
+    @Description("A log event handled by the Rollbar appender")
+    @Category("Rollbar")
+    @Enabled(false)
+    @StackTrace(true)
+    static class Append extends Event {
+
+        @Label("Level")
+        String level;
+
+        @Label("Logger")
+        String logger;
+
+        @Label("Outcome")
+        @Description("filtered, sampled, deduplicated, enqueued, dropped or failed")
+        String outcome;
+    }
+
+    @Name("com.muantech.rollbar.Build")
+    @Label("Rollbar Build")
+    @Description("A notification serialized into its payload")
+    @Category("Rollbar")
+    @Enabled(false)
+    @StackTrace(true)
+    static class Build extends Event {
+
+        @Label("Level")
+        String level;
+
+        @Label("Frames")
+        int frames;
+
+        @Label("Payload Size")
+        @DataAmount
+        int payloadSize;
+
+        @Label("Streaming")
+        boolean streaming;
+    }
+
+    @Name("com.muantech.rollbar.Http")
+    @Label("Rollbar HTTP Request")
+    @Description("An attempt to send a request to the Rollbar endpoint")
+    @Category("Rollbar")
+    @Enabled(false)
+    @StackTrace(true)
+    static class Http extends Event {
+
+        @Label("URL")
+        String url;
+
+        @Label("Status")
+        @Description("0 when no response was read")
+        int status;
+
+        @Label("Attempt")
+        int attempt;
+
+        @Label("Outcome")
+        String outcome;
+    }
+
+}
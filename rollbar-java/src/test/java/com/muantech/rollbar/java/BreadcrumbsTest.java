@@ -0,0 +1,145 @@
+package com.muantech.rollbar.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.Test;
+
+public class BreadcrumbsTest {
+
+    private static final int WRITERS = 4;
+    private static final int ADDED = 50000;
+
+    // every field of an event written by a writer follows from its number, so a torn copy doesn't parse back
+    private static final PatternLayout LAYOUT = PatternLayout.newBuilder().withPattern("%t|%p|%c|%m").build();
+
+    @Test
+    public void keepsLastEventsOldestFirst() {
+        Breadcrumbs breadcrumbs = new Breadcrumbs(4);
+        for (int i = 0; i < 3; i++) {
+            breadcrumbs.add(event(0, i));
+        }
+        assertEquals(Arrays.asList("0:0", "0:1", "0:2"), breadcrumbs.snapshot(null));
+
+        for (int i = 3; i < 10; i++) {
+            breadcrumbs.add(event(0, i));
+        }
+        assertEquals(Arrays.asList("0:6", "0:7", "0:8", "0:9"), breadcrumbs.snapshot(null));
+    }
+
+    @Test
+    public void snapshotCopiesEvents() {
+        Breadcrumbs breadcrumbs = new Breadcrumbs(2);
+        breadcrumbs.add(event(0, 0));
+        breadcrumbs.add(event(0, 1));
+        List<String> snapshot = breadcrumbs.snapshot(null);
+
+        breadcrumbs.add(event(0, 2));
+        breadcrumbs.add(event(0, 3));
+
+        assertEquals(Arrays.asList("0:0", "0:1"), snapshot);
+        assertEquals("writer-0|WARN|logger-3|0:3", breadcrumbs.snapshot(LAYOUT).get(1));
+    }
+
+    @Test
+    public void clearStartsOver() {
+        Breadcrumbs breadcrumbs = new Breadcrumbs(4);
+        for (int i = 0; i < 6; i++) {
+            breadcrumbs.add(event(0, i));
+        }
+
+        breadcrumbs.clear();
+        assertEquals(Collections.<String> emptyList(), breadcrumbs.snapshot(null));
+
+        breadcrumbs.add(event(0, 6));
+        assertEquals(Arrays.asList("0:6"), breadcrumbs.snapshot(null));
+    }
+
+    // Several writers lapping a small ring while it's read: no snapshot holds a torn event or one out of order
+    @Test
+    public void snapshotsStayConsistentUnderConcurrentAdds() throws Exception {
+        final Breadcrumbs breadcrumbs = new Breadcrumbs(16);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] writers = new Thread[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            writers[w] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < ADDED; i++) {
+                        breadcrumbs.add(event(writer, i));
+                    }
+                }
+            });
+            writers[w].start();
+        }
+
+        int snapshots = 0;
+        start.countDown();
+        while (true) {
+            boolean done = !isAlive(writers);
+            List<String> snapshot = breadcrumbs.snapshot(LAYOUT);
+            assertConsistent(snapshot);
+            snapshots++;
+            if (done) break;
+            Thread.yield();
+        }
+
+        // a writer lapped while it was writing leaves its slot out
+        List<String> last = breadcrumbs.snapshot(LAYOUT);
+        assertTrue(snapshots > 0);
+        assertTrue(last.size() > 0 && last.size() <= 16);
+    }
+
+    private static void assertConsistent(List<String> snapshot) {
+        assertTrue(snapshot.size() <= 16);
+
+        int[] last = new int[WRITERS];
+        Arrays.fill(last, -1);
+        for (String line : snapshot) {
+            String[] fields = line.split("\\|");
+            assertEquals(line, 4, fields.length);
+            String[] message = fields[3].split(":");
+            int writer = Integer.parseInt(message[0]);
+            int number = Integer.parseInt(message[1]);
+
+            assertEquals(line, "writer-" + writer, fields[0]);
+            assertEquals(line, level(number).name(), fields[1]);
+            assertEquals(line, "logger-" + number % 7, fields[2]);
+            assertTrue(line, number > last[writer]);
+            last[writer] = number;
+        }
+    }
+
+    private static LogEvent event(int writer, int number) {
+        return Log4jLogEvent.createEvent("logger-" + number % 7, null, BreadcrumbsTest.class.getName(), level(number),
+                new SimpleMessage(writer + ":" + number), null, null, null, null, "writer-" + writer, null, number);
+    }
+
+    private static Level level(int number) {
+        return number % 2 == 0 ? Level.INFO : Level.WARN;
+    }
+
+    private static boolean isAlive(Thread[] threads) {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) return true;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,195 @@
+package com.muantech.rollbar.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.muantech.rollbar.java.CircuitBreaker.State;
+
+// A request that was never sent counts as a failure, a relayed one as a success
+public class CircuitBreakerTest {
+
+    private static final long OPEN_TIME = 50;
+    private static final long SLOW_CALL = 1000;
+
+    private final List<String> transitions = Collections.synchronizedList(new ArrayList<String>());
+    private CircuitBreaker breaker;
+
+    @Before
+    public void createBreaker() {
+        // opens at half of the last four requests failing
+        List<CircuitBreaker.Listener> listeners = new ArrayList<CircuitBreaker.Listener>();
+        listeners.add(new CircuitBreaker.Listener() {
+            @Override
+            public void onStateChange(State from, State to) {
+                transitions.add(from + ">" + to);
+            }
+        });
+        breaker = new CircuitBreaker(50, SLOW_CALL, OPEN_TIME, 4, TimeUnit.MILLISECONDS, listeners);
+    }
+
+    @Test
+    public void staysClosedUntilWindowIsFull() throws Exception {
+        send(failure());
+        send(failure());
+        send(failure());
+
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void opensAtFailureRate() throws Exception {
+        send(success());
+        send(failure());
+        send(success());
+        assertEquals(State.CLOSED, breaker.getState());
+
+        send(failure());
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getRejectedCount());
+        assertTrue(breaker.remainingOpenTime() > 0);
+        assertEquals(Collections.singletonList("CLOSED>OPEN"), transitions);
+    }
+
+    @Test
+    public void staysClosedBelowFailureRate() throws Exception {
+        send(failure());
+        for (int i = 0; i < 10; i++) {
+            send(success());
+        }
+        send(failure());
+
+        // the first failure has left the window
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void slowCallIsFailure() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            send(relayed(TimeUnit.MILLISECONDS.toNanos(SLOW_CALL + 1)));
+        }
+
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void singleProbeAfterOpenTime() throws Exception {
+        open();
+        Thread.sleep(OPEN_TIME + 10);
+
+        assertEquals(0, breaker.remainingOpenTime());
+        assertTrue(breaker.allowRequest());
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        // the turn given back goes to the next caller
+        breaker.cancelProbe();
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void probeSuccessCloses() throws Exception {
+        open();
+        Thread.sleep(OPEN_TIME + 10);
+        assertTrue(breaker.allowRequest());
+
+        HttpRequest probe = success();
+        breaker.onSend(probe);
+        breaker.onComplete(probe);
+
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(3, transitions.size());
+        assertEquals("OPEN>HALF_OPEN", transitions.get(1));
+        assertEquals("HALF_OPEN>CLOSED", transitions.get(2));
+
+        // the window starts over
+        send(failure());
+        send(failure());
+        send(failure());
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void probeFailureReopens() throws Exception {
+        open();
+        Thread.sleep(OPEN_TIME + 10);
+        assertTrue(breaker.allowRequest());
+
+        HttpRequest probe = failure();
+        breaker.onSend(probe);
+        breaker.onComplete(probe);
+
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals("HALF_OPEN>OPEN", transitions.get(2));
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void lateResultDoesNotDecideProbe() throws Exception {
+        HttpRequest late = success();
+        open();
+        Thread.sleep(OPEN_TIME + 10);
+        assertTrue(breaker.allowRequest());
+
+        HttpRequest probe = failure();
+        breaker.onSend(probe);
+        // sent before the breaker opened
+        breaker.onComplete(late);
+        assertEquals(State.HALF_OPEN, breaker.getState());
+
+        // only the first request sent after the probe was admitted is the probe
+        breaker.onSend(success());
+        breaker.onComplete(probe);
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void staleResultWhileOpenIsIgnored() throws Exception {
+        open();
+
+        send(success());
+
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    private void open() throws MalformedURLException {
+        for (int i = 0; i < 4; i++) {
+            send(failure());
+        }
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    private void send(HttpRequest request) {
+        breaker.onSend(request);
+        breaker.onComplete(request);
+    }
+
+    private static HttpRequest success() throws MalformedURLException {
+        return relayed(0);
+    }
+
+    private static HttpRequest relayed(long latency) throws MalformedURLException {
+        HttpRequest request = failure();
+        request.relayed(latency);
+        return request;
+    }
+
+    private static HttpRequest failure() throws MalformedURLException {
+        return new HttpRequest(new URL("http://127.0.0.1/"), "POST");
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.muantech.rollbar.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.muantech.rollbar.java.RollbarNotifier.Level;
+
+public class DeduplicatorTest {
+
+    private static final long FINGERPRINT = 42;
+
+    private SummaryNotifier notifier;
+
+    @Before
+    public void setUp() throws Exception {
+        NotifierConfig config = new NotifierConfig();
+        config.setShutdownTimeout(0);
+        notifier = new SummaryNotifier(config);
+    }
+
+    @After
+    public void tearDown() {
+        notifier.close(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void repeatsAreSummarized() {
+        Deduplicator deduplicator = new Deduplicator(notifier, 1, TimeUnit.HOURS, 8, 16);
+
+        fill(deduplicator.record(FINGERPRINT));
+        for (int i = 0; i < 3; i++) {
+            assertNull(deduplicator.record(FINGERPRINT));
+        }
+        deduplicator.flush();
+
+        assertEquals(1, notifier.summaries.size());
+        assertEquals("4", occurrences(notifier.summaries.get(0)));
+        assertEquals(3, deduplicator.getSuppressedCount());
+    }
+
+    @Test
+    public void closedWindowTakesNoRepeat() {
+        Deduplicator deduplicator = new Deduplicator(notifier, 1, TimeUnit.HOURS, 8, 16);
+
+        Deduplicator.Window window = deduplicator.record(FINGERPRINT);
+        fill(window);
+        assertNull(deduplicator.record(FINGERPRINT));
+        deduplicator.flush();
+
+        // a repeat arriving now would be lost, it opens a new window instead
+        assertFalse(window.repeat());
+        assertNotNull(deduplicator.record(FINGERPRINT));
+        assertEquals(1, notifier.summaries.size());
+        assertEquals("2", occurrences(notifier.summaries.get(0)));
+    }
+
+    @Test
+    public void unfilledWindowOutlivesSweep() throws Exception {
+        Deduplicator deduplicator = new Deduplicator(notifier, 50, TimeUnit.MILLISECONDS, 8, 16);
+
+        Deduplicator.Window window = deduplicator.record(FINGERPRINT);
+        assertNull(deduplicator.record(FINGERPRINT));
+
+        Thread.sleep(60);
+        deduplicator.sweep();
+        assertEquals(0, notifier.summaries.size());
+
+        fill(window);
+        deduplicator.sweep();
+        assertEquals(1, notifier.summaries.size());
+        assertEquals("2", occurrences(notifier.summaries.get(0)));
+    }
+
+    @Test
+    public void repeatsOfReplacedUnfilledWindowAreKept() throws Exception {
+        Deduplicator deduplicator = new Deduplicator(notifier, 50, TimeUnit.MILLISECONDS, 8, 16);
+
+        deduplicator.record(FINGERPRINT);
+        assertNull(deduplicator.record(FINGERPRINT));
+
+        Thread.sleep(60);
+        Deduplicator.Window next = deduplicator.record(FINGERPRINT);
+        assertNotNull(next);
+        fill(next);
+        deduplicator.flush();
+
+        assertEquals(1, notifier.summaries.size());
+        assertEquals("2", occurrences(notifier.summaries.get(0)));
+    }
+
+    @Test
+    public void summaryKeepsLevel() {
+        Deduplicator deduplicator = new Deduplicator(notifier, 1, TimeUnit.HOURS, 8, 16);
+
+        deduplicator.record(FINGERPRINT).fill(Level.WARNING, "Slow payment", null, NotificationContext.obtain());
+        deduplicator.record(FINGERPRINT);
+        deduplicator.flush();
+
+        assertEquals(Level.WARNING, notifier.levels.get(0));
+    }
+
+    private static void fill(Deduplicator.Window window) {
+        window.fill(Level.ERROR, "Payment failed", new IllegalStateException("Connection refused"), NotificationContext.obtain());
+    }
+
+    private static String occurrences(NotificationContext context) {
+        for (int i = 0; i < context.getCustomSize(); i++) {
+            if (context.getCustomName(i).equals(Deduplicator.OCCURRENCES_KEY)) return (String) context.getCustomValue(i);
+        }
+        return null;
+    }
+
+    // keeps the summaries instead of sending them
+    private static class SummaryNotifier extends Notifier {
+
+        private final List<NotificationContext> summaries = new CopyOnWriteArrayList<NotificationContext>();
+        private final List<Level> levels = new CopyOnWriteArrayList<Level>();
+
+        SummaryNotifier(NotifierConfig config) throws Exception {
+            super("test", "http://127.0.0.1:1/", "token", "test", config);
+        }
+
+        @Override
+        public void notify(Level level, String message, Throwable throwable, NotificationContext context) {
+            levels.add(level);
+            summaries.add(context);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.muantech.rollbar.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class NotificationContextTest {
+
+    // more than the pool holds, so every pooled context is taken
+    private static final int OBTAINED = 512;
+
+    @Test
+    public void recycledContextIsCleared() {
+        NotificationContext context = NotificationContext.obtain();
+        context.setUrl("http://localhost/orders").putHeader("Accept", "text/html").put("order", "A-1042").put("attempts", 3L);
+
+        context.recycle();
+
+        assertNull(context.getUrl());
+        assertEquals(0, context.getHeaders().size());
+        assertEquals(0, context.getCustomSize());
+    }
+
+    @Test
+    public void recycledContextIsReused() {
+        NotificationContext context = NotificationContext.obtain();
+        context.recycle();
+
+        assertEquals(1, countObtained(context));
+    }
+
+    @Test
+    public void contextRecycledTwiceIsPooledOnce() {
+        NotificationContext context = NotificationContext.obtain();
+        context.recycle();
+        context.recycle();
+
+        assertEquals(1, countObtained(context));
+    }
+
+    @Test
+    public void concurrentRecyclesPoolOnce() throws Exception {
+        final int rounds = 1000;
+        final NotificationContext[] contexts = new NotificationContext[rounds];
+        // the threads recycle the context of a round together, the test checks it between two rounds
+        final CyclicBarrier barrier = new CyclicBarrier(5);
+
+        Thread[] threads = new Thread[barrier.getParties() - 1];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int round = 0; round < rounds; round++) {
+                            barrier.await();
+                            contexts[round].recycle();
+                            barrier.await();
+                        }
+                    } catch (Exception e) {
+                        // the test fails on the barrier timeout
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            contexts[round] = NotificationContext.obtain();
+            contexts[round].put("round", round);
+            barrier.await(10, TimeUnit.SECONDS);
+            barrier.await(10, TimeUnit.SECONDS);
+            assertEquals("round " + round, 1, countObtained(contexts[round]));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void copyOutlivesRecycle() {
+        NotificationContext context = NotificationContext.obtain();
+        context.setUserId("42").put("order", "A-1042").put("retried", true);
+
+        NotificationContext copy = context.copy();
+        context.recycle();
+
+        assertEquals("42", copy.getUserId());
+        assertEquals(2, copy.getCustomSize());
+        assertEquals("A-1042", copy.getCustomValue(0));
+        assertSame(Boolean.TRUE, copy.getCustomValue(1));
+        copy.recycle();
+    }
+
+    // Takes everything out of the pool, counting the given context, and puts it all back
+    private static int countObtained(NotificationContext context) {
+        NotificationContext[] obtained = new NotificationContext[OBTAINED];
+        int count = 0;
+        for (int i = 0; i < OBTAINED; i++) {
+            obtained[i] = NotificationContext.obtain();
+            if (obtained[i] == context) count++;
+        }
+        for (NotificationContext each : obtained) {
+            each.recycle();
+        }
+        return count;
+    }
+
+}
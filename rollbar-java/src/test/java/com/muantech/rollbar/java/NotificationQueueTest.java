@@ -0,0 +1,242 @@
+package com.muantech.rollbar.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.muantech.rollbar.java.RollbarNotifier.Level;
+
+public class NotificationQueueTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int OFFERED = 20000;
+
+    @Test
+    public void capacityIsRoundedToPowerOfTwo() {
+        assertEquals(2, queue(1, OverflowPolicy.DROP_NEWEST).getCapacity());
+        assertEquals(8, queue(5, OverflowPolicy.DROP_NEWEST).getCapacity());
+        assertEquals(64, queue(64, OverflowPolicy.DROP_NEWEST).getCapacity());
+    }
+
+    @Test
+    public void dropNewestKeepsQueued() {
+        NotificationQueue queue = queue(2, OverflowPolicy.DROP_NEWEST);
+        Notification first = notification(Level.INFO, "1");
+        Notification second = notification(Level.INFO, "2");
+
+        assertTrue(queue.offer(first));
+        assertTrue(queue.offer(second));
+        assertFalse(queue.offer(notification(Level.ERROR, "3")));
+
+        assertEquals(1, queue.getDroppedCount(OverflowPolicy.DROP_NEWEST));
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void dropOldestEvictsHead() {
+        NotificationQueue queue = queue(2, OverflowPolicy.DROP_OLDEST);
+        Notification second = notification(Level.INFO, "2");
+        Notification third = notification(Level.INFO, "3");
+
+        queue.offer(notification(Level.INFO, "1"));
+        queue.offer(second);
+        assertTrue(queue.offer(third));
+
+        assertEquals(1, queue.getDroppedCount(OverflowPolicy.DROP_OLDEST));
+        assertSame(second, queue.poll());
+        assertSame(third, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void dropLowestLevelReplacesLowerLevel() {
+        NotificationQueue queue = queue(2, OverflowPolicy.DROP_LOWEST_LEVEL);
+        Notification warning = notification(Level.WARNING, "1");
+        Notification error = notification(Level.ERROR, "3");
+
+        queue.offer(warning);
+        queue.offer(notification(Level.DEBUG, "2"));
+        assertTrue(queue.offer(error));
+
+        assertEquals(1, queue.getDroppedCount(OverflowPolicy.DROP_LOWEST_LEVEL));
+        assertSame(warning, queue.poll());
+        assertSame(error, queue.poll());
+    }
+
+    @Test
+    public void dropLowestLevelDropsOfferedWithoutLowerLevel() {
+        NotificationQueue queue = queue(2, OverflowPolicy.DROP_LOWEST_LEVEL);
+        queue.offer(notification(Level.ERROR, "1"));
+        queue.offer(notification(Level.WARNING, "2"));
+
+        assertFalse(queue.offer(notification(Level.WARNING, "3")));
+
+        assertEquals(1, queue.getDroppedCount(OverflowPolicy.DROP_LOWEST_LEVEL));
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void blockDropsAfterTimeout() {
+        NotificationQueue queue = new NotificationQueue(2, OverflowPolicy.BLOCK, 20, TimeUnit.MILLISECONDS);
+        queue.offer(notification(Level.INFO, "1"));
+        queue.offer(notification(Level.INFO, "2"));
+
+        long start = System.nanoTime();
+        assertFalse(queue.offer(notification(Level.INFO, "3")));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(1, queue.getDroppedCount(OverflowPolicy.BLOCK));
+    }
+
+    @Test
+    public void blockWaitsForConsumer() throws Exception {
+        final NotificationQueue queue = new NotificationQueue(2, OverflowPolicy.BLOCK, 10, TimeUnit.SECONDS);
+        queue.offer(notification(Level.INFO, "1"));
+        queue.offer(notification(Level.INFO, "2"));
+
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sleep(20);
+                queue.poll();
+            }
+        });
+        consumer.start();
+
+        assertTrue(queue.offer(notification(Level.INFO, "3")));
+        consumer.join();
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void lanesEvictLowerLaneWhenFull() {
+        PriorityLanes lanes = lanes(OverflowPolicy.DROP_LOWEST_LEVEL);
+        Notification first = notification(Level.ERROR, "1");
+        Notification second = notification(Level.ERROR, "2");
+        Notification evicting = notification(Level.ERROR, "5");
+        Notification kept = notification(Level.DEBUG, "4");
+
+        lanes.offer(first);
+        lanes.offer(second);
+        lanes.offer(notification(Level.DEBUG, "3"));
+        lanes.offer(kept);
+        assertTrue(lanes.offer(evicting));
+
+        // the evicting notification is sent in the turn of its own level, before the lower lane
+        assertEquals(1, lanes.getDroppedCount(OverflowPolicy.DROP_LOWEST_LEVEL));
+        assertSame(first, lanes.poll());
+        assertSame(second, lanes.poll());
+        assertSame(evicting, lanes.poll());
+        assertSame(kept, lanes.poll());
+        assertNull(lanes.poll());
+    }
+
+    @Test
+    public void lanesDropWithoutLowerNotification() {
+        PriorityLanes lanes = lanes(OverflowPolicy.DROP_LOWEST_LEVEL);
+        lanes.offer(notification(Level.ERROR, "1"));
+        lanes.offer(notification(Level.ERROR, "2"));
+        lanes.offer(notification(Level.WARNING, "3"));
+
+        assertFalse(lanes.offer(notification(Level.WARNING, "4")));
+        assertTrue(lanes.offer(notification(Level.ERROR, "5")));
+        assertFalse(lanes.offer(notification(Level.ERROR, "6")));
+
+        assertEquals(2, lanes.getCapacity(Level.ERROR));
+        assertEquals(3, lanes.getDroppedCount(OverflowPolicy.DROP_LOWEST_LEVEL));
+    }
+
+    @Test
+    public void dropNewestLosesNothingUncounted() throws Exception {
+        assertEveryOfferAccounted(OverflowPolicy.DROP_NEWEST);
+    }
+
+    @Test
+    public void dropOldestLosesNothingUncounted() throws Exception {
+        assertEveryOfferAccounted(OverflowPolicy.DROP_OLDEST);
+    }
+
+    // Several producers against one consumer on a small queue: every notification is either polled once or dropped
+    private static void assertEveryOfferAccounted(OverflowPolicy policy) throws Exception {
+        final NotificationQueue queue = queue(64, policy);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < OFFERED; i++) {
+                        queue.offer(notification(Level.INFO, String.valueOf(producer * OFFERED + i)));
+                    }
+                }
+            });
+            producers[p].start();
+        }
+
+        boolean[] polled = new boolean[PRODUCERS * OFFERED];
+        int count = 0;
+        start.countDown();
+        while (true) {
+            boolean done = !isAlive(producers);
+            Notification notification;
+            while ((notification = queue.poll()) != null) {
+                int id = Integer.parseInt(notification.getMessage());
+                assertFalse("polled twice: " + id, polled[id]);
+                polled[id] = true;
+                count++;
+            }
+            if (done) break;
+            Thread.yield();
+        }
+
+        assertEquals(PRODUCERS * OFFERED, count + queue.getDroppedCount());
+        assertEquals(0, queue.size());
+    }
+
+    private static boolean isAlive(Thread[] threads) {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) return true;
+        }
+        return false;
+    }
+
+    // two ERROR, one WARNING and two DEBUG at most
+    private static PriorityLanes lanes(OverflowPolicy policy) {
+        return new PriorityLanes(PriorityLanes.parseLevelInts("ERROR=2,WARNING=1,INFO=1,DEBUG=2"),
+                new HashMap<Level, OverflowPolicy>(), PriorityLanes.parseLevelInts(PriorityLanes.DEFAULT_WEIGHTS), 4, policy,
+                0, TimeUnit.MILLISECONDS);
+    }
+
+    private static NotificationQueue queue(int capacity, OverflowPolicy policy) {
+        return new NotificationQueue(capacity, policy, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private static Notification notification(Level level, String message) {
+        return new Notification(level, message, null, null);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.muantech.rollbar.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+// The streaming writer and the JSONObject builder must send the same payloads
+public class NotifyBuilderTest {
+
+    @Test
+    public void sameMessagePayload() throws Exception {
+        NotifyBuilder builder = new NotifyBuilder("token", "test");
+
+        assertSamePayload(builder, "INFO", "Started", null, null);
+    }
+
+    @Test
+    public void sameTracePayload() throws Exception {
+        NotifyBuilder builder = new NotifyBuilder("token", "test");
+
+        assertSamePayload(builder, "ERROR", "Payment failed", chain(), null);
+    }
+
+    @Test
+    public void sameContextPayload() throws Exception {
+        NotifyBuilder builder = new NotifyBuilder("token", "test");
+
+        NotificationContext context = new NotificationContext()
+                .setUrl("http://localhost/orders")
+                .setMethod("POST")
+                .putHeader("Accept", "application/json")
+                .putParam("id", "A-1042")
+                .setQuery("id=A-1042")
+                .setUserIp("127.0.0.1")
+                .setSessionId("session")
+                .setRequestId("request")
+                .setUserId("42")
+                .setUsername("jdoe")
+                .setUserAgent("curl")
+                .setLogs(Arrays.asList("first line", "second line"))
+                .put("order", "A-1042")
+                .put("roles", new String[] { "admin", "user" })
+                .put("attempts", 3L)
+                .put("retried", true);
+
+        JSONObject payload = assertSamePayload(builder, "ERROR", "Payment failed", chain(), context);
+
+        JSONObject custom = payload.getJSONObject("data").getJSONObject("custom");
+        assertEquals(3L, custom.getLong("attempts"));
+        assertTrue(custom.getBoolean("retried"));
+        // the request fields aren't custom data
+        assertTrue(!custom.has("url") && !custom.has("user-agent"));
+    }
+
+    @Test
+    public void sameMapPayload() throws Exception {
+        NotifyBuilder builder = new NotifyBuilder("token", "test");
+
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("url", "http://localhost/orders");
+        map.put("user", "42");
+        map.put("order", "A-1042");
+        map.put("roles", new String[] { "admin", "user" });
+
+        JSONObject expected = builder.build("WARNING", "Slow payment", null, map);
+        JSONObject actual = write(builder, "WARNING", "Slow payment", null, NotificationContext.fromMap(map));
+        assertSimilar(expected, actual);
+    }
+
+    @Test
+    public void rawTraceHasOwnFrames() throws Exception {
+        NotifyBuilder builder = new NotifyBuilder("token", "test", -1);
+        Throwable throwable = chain();
+
+        JSONObject payload = assertSamePayload(builder, "ERROR", "Payment failed", throwable, null);
+
+        JSONArray traces = payload.getJSONObject("data").getJSONObject("body").getJSONArray("trace_chain");
+        assertEquals(raw(throwable.getCause()), traces.getJSONObject(0).getString("raw"));
+        assertEquals(raw(throwable), traces.getJSONObject(1).getString("raw"));
+    }
+
+    @Test
+    public void sameCutRawTrace() throws Exception {
+        NotifyBuilder builder = new NotifyBuilder("token", "test", 200);
+
+        JSONObject payload = assertSamePayload(builder, "ERROR", "Payment failed", chain(), null);
+
+        String raw = payload.getJSONObject("data").getJSONObject("body").getJSONArray("trace_chain").getJSONObject(1)
+                .getString("raw");
+        assertEquals(200 + "\n\t...".length(), raw.length());
+    }
+
+    // the exception and its frames as printStackTrace prints them
+    private static String raw(Throwable throwable) {
+        StringBuilder raw = new StringBuilder().append(throwable).append('\n');
+        for (StackTraceElement element : throwable.getStackTrace()) {
+            raw.append("\tat ").append(element).append('\n');
+        }
+        return raw.toString();
+    }
+
+    // a cause and a suppressed exception, with frames in common
+    private static Throwable chain() {
+        IllegalStateException cause = new IllegalStateException("Connection refused");
+        RuntimeException throwable = new RuntimeException("Payment failed", cause);
+        throwable.addSuppressed(new IllegalArgumentException("Rollback failed"));
+        return throwable;
+    }
+
+    private static JSONObject assertSamePayload(NotifyBuilder builder, String level, String message, Throwable throwable,
+            NotificationContext context) throws Exception {
+        JSONObject expected = builder.build(level, message, throwable, context);
+        JSONObject actual = write(builder, level, message, throwable, context);
+        assertSimilar(expected, actual);
+        return actual;
+    }
+
+    private static JSONObject write(NotifyBuilder builder, String level, String message, Throwable throwable,
+            NotificationContext context) throws Exception {
+        JsonWriter out = new JsonWriter(4096);
+        builder.write(out, level, message, throwable, context);
+        return new JSONObject(new String(out.toByteArray(), "UTF-8"));
+    }
+
+    // as sent, numbers parsed back are Integers, and the timestamps may be a second apart
+    private static void assertSimilar(JSONObject tree, JSONObject actual) {
+        JSONObject expected = new JSONObject(tree.toString());
+        expected.getJSONObject("data").remove("timestamp");
+        actual.getJSONObject("data").remove("timestamp");
+        assertTrue("expected " + expected + " but was " + actual, expected.similar(actual));
+    }
+
+}
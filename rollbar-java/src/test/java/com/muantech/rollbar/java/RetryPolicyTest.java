@@ -0,0 +1,204 @@
+package com.muantech.rollbar.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+// The endpoint is a local server answering every request with the status and Retry-After set by the test
+public class RetryPolicyTest {
+
+    private static final long BASE_DELAY = 100;
+    private static final long MAX_DELAY = 5000;
+    private static final int SAMPLES = 2000;
+
+    private HttpServer server;
+    private volatile int status;
+    private volatile String retryAfter;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (retryAfter != null) exchange.getResponseHeaders().set("Retry-After", retryAfter);
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void classifiesResponseCodes() {
+        assertEquals(Outcome.SUCCESS, Outcome.classify(200));
+        assertEquals(Outcome.THROTTLED, Outcome.classify(429));
+        assertEquals(Outcome.THROTTLED, Outcome.classify(503));
+        assertEquals(Outcome.TRANSIENT, Outcome.classify(408));
+        assertEquals(Outcome.TRANSIENT, Outcome.classify(500));
+        assertEquals(Outcome.PERMANENT, Outcome.classify(400));
+        assertEquals(Outcome.PERMANENT, Outcome.classify(413));
+    }
+
+    @Test
+    public void parsesRetryAfterSeconds() {
+        assertEquals(120000, HttpRequest.parseRetryAfter("120"));
+        assertEquals(120000, HttpRequest.parseRetryAfter(" 120 "));
+        assertEquals(0, HttpRequest.parseRetryAfter("-5"));
+        assertEquals(0, HttpRequest.parseRetryAfter("soon"));
+        assertEquals(0, HttpRequest.parseRetryAfter(""));
+        assertEquals(0, HttpRequest.parseRetryAfter(null));
+    }
+
+    @Test
+    public void parsesRetryAfterDate() {
+        long parsed = HttpRequest.parseRetryAfter(httpDate(System.currentTimeMillis() + 60000));
+
+        // the date has no milliseconds and the clock moves on while it's parsed
+        assertTrue(String.valueOf(parsed), parsed > 58000 && parsed <= 60000);
+        assertEquals(0, HttpRequest.parseRetryAfter(httpDate(System.currentTimeMillis() - 60000)));
+    }
+
+    @Test
+    public void jitterStaysWithinExponentialCeiling() {
+        RetryPolicy policy = policy(10, 100);
+
+        for (int failures = 1; failures <= 8; failures++) {
+            long ceiling = Math.min(MAX_DELAY, BASE_DELAY << (failures - 1));
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            for (int i = 0; i < SAMPLES; i++) {
+                long delay = policy.backoff(failures, null);
+                min = Math.min(min, delay);
+                max = Math.max(max, delay);
+            }
+
+            // full jitter: spread over the whole range, not around the ceiling
+            assertTrue(min >= 0);
+            assertTrue(max <= ceiling);
+            assertTrue(min < ceiling / 4);
+            assertTrue(max > ceiling * 3 / 4);
+        }
+    }
+
+    @Test
+    public void retriesTransientUntilMaxAttempts() throws IOException {
+        RetryPolicy policy = policy(3, 100);
+        HttpRequest request = request(500, null);
+
+        for (int attempt = 1; attempt < 3; attempt++) {
+            assertEquals(attempt, request.getAttemptNumber());
+            long delay = policy.nextDelay(request);
+            assertTrue(delay >= 0 && delay <= BASE_DELAY << (attempt - 1));
+            request.execute();
+        }
+
+        assertEquals(-1, policy.nextDelay(request));
+        assertEquals(2, policy.getRetryCount());
+        assertEquals(1, policy.getGivenUpCount());
+    }
+
+    @Test
+    public void neverRetriesPermanent() throws IOException {
+        RetryPolicy policy = policy(3, 100);
+        HttpRequest request = request(400, null);
+        policy.onComplete(request);
+
+        assertEquals(-1, policy.nextDelay(request));
+        assertEquals(1, policy.getOutcomeCount(Outcome.PERMANENT));
+        assertEquals(0, policy.getRetryCount());
+    }
+
+    @Test
+    public void budgetRunsOutWithoutLiveTraffic() throws IOException {
+        RetryPolicy policy = policy(2, 10);
+        HttpRequest request = request(500, null);
+
+        // the initial balance
+        for (int i = 0; i < 10; i++) {
+            assertTrue(policy.nextDelay(request) >= 0);
+        }
+        assertEquals(-1, policy.nextDelay(request));
+        assertEquals(1, policy.getBudgetExhaustedCount());
+
+        // ten percent of ten items pays for one retry
+        policy.onSent(10);
+        assertTrue(policy.nextDelay(request) >= 0);
+        assertEquals(-1, policy.nextDelay(request));
+        assertEquals(2, policy.getBudgetExhaustedCount());
+    }
+
+    @Test
+    public void waitsForRetryAfter() throws IOException {
+        RetryPolicy policy = policy(2, 100);
+        HttpRequest request = request(429, "2");
+
+        assertEquals(Outcome.THROTTLED, request.getOutcome());
+        assertEquals(2000, request.getRetryAfter());
+        for (int i = 0; i < 5; i++) {
+            long delay = policy.nextDelay(request);
+            assertTrue(delay >= 2000 && delay <= MAX_DELAY);
+        }
+    }
+
+    @Test
+    public void clampsRetryAfterToMaxDelay() throws IOException {
+        RetryPolicy policy = policy(2, 100);
+        HttpRequest request = request(503, "3600");
+
+        assertEquals(3600000, request.getRetryAfter());
+        assertEquals(MAX_DELAY, policy.nextDelay(request));
+        assertEquals(MAX_DELAY, policy.backoff(1, request));
+    }
+
+    @Test
+    public void ignoresRetryAfterOfTransient() throws IOException {
+        HttpRequest request = request(500, "3600");
+
+        assertEquals(Outcome.TRANSIENT, request.getOutcome());
+        assertEquals(0, request.getRetryAfter());
+        assertFalse(policy(2, 100).backoff(1, request) > BASE_DELAY);
+    }
+
+    private RetryPolicy policy(int maxAttempts, int budget) {
+        return new RetryPolicy(maxAttempts, BASE_DELAY, MAX_DELAY, budget);
+    }
+
+    // Sent once to the local server
+    private HttpRequest request(int status, String retryAfter) throws IOException {
+        this.status = status;
+        this.retryAfter = retryAfter;
+        HttpRequest request = new HttpRequest(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/"), "POST");
+        request.setBody("{}");
+        request.execute();
+        return request;
+    }
+
+    private static String httpDate(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(millis));
+    }
+
+}
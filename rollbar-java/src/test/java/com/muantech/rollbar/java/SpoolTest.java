@@ -0,0 +1,211 @@
+package com.muantech.rollbar.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// A crash is a spool left as it is but for the lock of its directory, which the exit of the process releases, and
+// opened again on the same directory
+public class SpoolTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int SEGMENT_SIZE = 64;
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("spool").toFile();
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void uncommittedRecordsReplayAfterCrash() throws IOException {
+        Spool spool = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+        append(spool, "first", "second", "third");
+        assertEquals("first", next(spool));
+        spool.commit();
+        assertEquals("second", next(spool));
+        crash(spool);
+
+        Spool recovered = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+
+        assertTrue(recovered.isReplaying());
+        assertEquals("second", next(recovered));
+        assertEquals("third", next(recovered));
+        assertNull(recovered.next());
+        assertFalse(recovered.isReplaying());
+        assertTrue(recovered.isEmpty());
+    }
+
+    @Test
+    public void appendAfterCrashFollowsRecoveredRecords() throws IOException {
+        Spool spool = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+        append(spool, "first", "second");
+        crash(spool);
+
+        Spool recovered = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+        append(recovered, "third");
+
+        assertEquals("first", next(recovered));
+        assertEquals("second", next(recovered));
+        assertFalse(recovered.isReplaying());
+        assertEquals("third", next(recovered));
+        assertNull(recovered.next());
+    }
+
+    @Test
+    public void segmentsRecoverInOrder() throws IOException {
+        Spool spool = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+        for (int i = 0; i < 20; i++) {
+            append(spool, "record-" + i);
+        }
+        // five records to a segment, the commit is within the second one
+        for (int i = 0; i < 9; i++) {
+            next(spool);
+        }
+        spool.commit();
+        crash(spool);
+
+        Spool recovered = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+
+        for (int i = 9; i < 20; i++) {
+            assertEquals("record-" + i, next(recovered));
+        }
+        assertNull(recovered.next());
+    }
+
+    @Test
+    public void committedSegmentsAreDeleted() throws IOException {
+        Spool spool = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+        for (int i = 0; i < 20; i++) {
+            append(spool, "record-" + i);
+        }
+        int segments = segmentCount();
+
+        for (int i = 0; i < 9; i++) {
+            next(spool);
+        }
+        spool.commit();
+
+        assertTrue(segmentCount() < segments);
+    }
+
+    @Test
+    public void tornRecordReadsAsEnd() throws IOException {
+        Spool spool = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+        append(spool, "first", "second");
+        crash(spool);
+        // the crash came after the payload of the second record but before its length
+        RandomAccessFile segment = new RandomAccessFile(new File(directory, String.format("%020d.seg", 0)), "rw");
+        try {
+            segment.seek(4 + "first".length());
+            segment.writeInt(0);
+        } finally {
+            segment.close();
+        }
+
+        Spool recovered = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+        append(recovered, "third");
+
+        assertEquals("first", next(recovered));
+        assertEquals("third", next(recovered));
+        assertNull(recovered.next());
+    }
+
+    @Test
+    public void rewindReadsAgainSinceCommit() throws IOException {
+        Spool spool = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+        append(spool, "first", "second");
+        assertEquals("first", next(spool));
+        spool.commit();
+        assertEquals("second", next(spool));
+
+        spool.rewind();
+
+        assertEquals("second", next(spool));
+        assertNull(spool.next());
+    }
+
+    @Test
+    public void evictionCountsUnreadRecords() throws IOException {
+        // two segments of five records each at most
+        Spool spool = new Spool(directory, SEGMENT_SIZE, 2 * SEGMENT_SIZE);
+        for (int i = 0; i < 12; i++) {
+            append(spool, "record-" + i);
+        }
+
+        long evicted = spool.getEvictedCount();
+        assertTrue(evicted > 0);
+        assertEquals("record-" + evicted, next(spool));
+    }
+
+    @Test
+    public void openSpoolLocksDirectory() throws IOException {
+        Spool spool = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+        try {
+            new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+            fail("the directory of an open spool was opened again");
+        } catch (IOException e) {
+            // locked
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void closedSpoolReleasesDirectory() throws IOException {
+        Spool spool = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+        append(spool, "first");
+        spool.close();
+
+        Spool reopened = new Spool(directory, SEGMENT_SIZE, MAX_BYTES);
+
+        assertEquals("first", next(reopened));
+        assertNull(spool.next());
+    }
+
+    private static void crash(Spool spool) {
+        spool.close();
+    }
+
+    // without the offset and the lock files
+    private int segmentCount() {
+        return directory.list().length - 2;
+    }
+
+    private static void append(Spool spool, String... payloads) throws IOException {
+        for (String payload : payloads) {
+            assertTrue(spool.append(payload.getBytes(UTF_8)));
+        }
+    }
+
+    private static String next(Spool spool) {
+        byte[] payload = spool.next();
+        return payload == null ? null : new String(payload, UTF_8);
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.muantech.rollbar.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.junit.Test;
+
+// Time only moves when the test says so
+public class TokenBucketTest {
+
+    private final ManualClock clock = new ManualClock();
+
+    @Test
+    public void admitsBurstThenRefuses() {
+        TokenBucket bucket = new TokenBucket(10, 10, clock);
+
+        assertEquals(10, acquire(bucket, 20));
+    }
+
+    @Test
+    public void refillsAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 10, clock);
+        acquire(bucket, 10);
+
+        clock.advance(99);
+        assertFalse(bucket.tryAcquire());
+        clock.advance(1);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        clock.advance(500);
+        assertEquals(5, acquire(bucket, 20));
+    }
+
+    @Test
+    public void idleTimeDoesNotExceedBurst() {
+        TokenBucket bucket = new TokenBucket(10, 3, clock);
+        acquire(bucket, 3);
+
+        clock.advance(TimeUnit.MINUTES.toMillis(10));
+
+        assertEquals(3, acquire(bucket, 20));
+    }
+
+    @Test
+    public void releasedTokenIsAdmittedAgain() {
+        TokenBucket bucket = new TokenBucket(10, 2, clock);
+        acquire(bucket, 2);
+        assertFalse(bucket.tryAcquire());
+
+        bucket.release();
+
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void levelAndGlobalLimitsBothApply() {
+        Map<Level, Double> levelRates = new HashMap<Level, Double>();
+        levelRates.put(Level.ERROR, 1.0);
+        // two events a second overall, one of them ERROR, no sampling so no notifier
+        Sampler sampler = new Sampler(null, 2, levelRates, 0, clock);
+
+        assertTrue(sampler.isSampled(Level.ERROR));
+        assertFalse(sampler.isSampled(Level.ERROR));
+        assertTrue(sampler.isSampled(Level.WARN));
+        assertFalse(sampler.isSampled(Level.WARN));
+        assertEquals(2, sampler.getRateLimitedCount());
+    }
+
+    @Test
+    public void globalRefusalGivesLevelTokenBack() {
+        Map<Level, Double> levelRates = new HashMap<Level, Double>();
+        levelRates.put(Level.ERROR, 1.0);
+        Sampler sampler = new Sampler(null, 2, levelRates, 0, clock);
+        assertTrue(sampler.isSampled(Level.ERROR));
+
+        clock.advance(1000);
+        assertTrue(sampler.isSampled(Level.INFO));
+        assertTrue(sampler.isSampled(Level.INFO));
+        assertFalse(sampler.isSampled(Level.ERROR));
+
+        // the ERROR bucket would still be empty had the refused event kept its token
+        clock.advance(500);
+        assertTrue(sampler.isSampled(Level.ERROR));
+        assertEquals(1, sampler.getRateLimitedCount());
+        assertEquals(0, sampler.getSampledOutCount());
+    }
+
+    private static int acquire(TokenBucket bucket, int attempts) {
+        int acquired = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (bucket.tryAcquire()) acquired++;
+        }
+        return acquired;
+    }
+
+    static class ManualClock implements TokenBucket.Clock {
+
+        private long now = System.nanoTime();
+
+        void advance(long millis) {
+            now += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+    }
+
+}